@@ -1,19 +1,23 @@
 package gay.pancake.daybreak;
 
+import gay.pancake.daybreak.reset.ParallelDeleter;
+import gay.pancake.daybreak.reset.ResetJournal;
+import gay.pancake.daybreak.reset.ResetPhase;
+import gay.pancake.daybreak.reset.SurvivorFiles;
+import gay.pancake.daybreak.store.StateStore;
 import io.papermc.paper.plugin.bootstrap.BootstrapContext;
 import io.papermc.paper.plugin.bootstrap.PluginBootstrap;
 import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
 import org.codehaus.plexus.util.FileUtils;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.File;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Bootstrapper of the plugin
@@ -23,16 +27,24 @@ public class DaybreakBootstrap implements PluginBootstrap {
 
     /** File indicating the server should be reset */
     public static final Path LOCK_FILE = Path.of("reset.lock");
-    /** File listing survivors inbetween resets */
+    /** Legacy file listing survivors inbetween resets, only read when migrating to the state store */
     public static final Path SURVIVORS_FILE = Path.of("survivors.txt");
-    /** File listing survivors inbetween resets */
+    /** Legacy file listing survivors of the last session, only read when migrating to the state store */
     public static final Path LAST_SESSION_FILE = Path.of("last_survivors.txt");
-    /** File storing the crown holders */
+    /** File recording the completed phases of a reset */
+    public static final Path JOURNAL_FILE = Path.of("reset.journal");
+    /** Legacy file storing the crown holders, only read when migrating to the state store */
     public static final Path CROWNS_FILE = Path.of("crowns.txt");
+    /** Folder of the world generated for the next day */
+    public static final Path NEXT_WORLD_DIR = Path.of("world_next");
+    /** File indicating the world for the next day has been fully generated */
+    public static final Path NEXT_WORLD_READY_FILE = NEXT_WORLD_DIR.resolve("daybreak.ready");
+    /** File storing the name of the world created by the last hot reset */
+    public static final Path PLAY_WORLD_FILE = Path.of("play_world.txt");
     /** Has server been reset */
     public static boolean RESET = false;
-    /** List of deaths from last reset */
-    public static List<UUID> LAST_DEATHS = new ArrayList<>();
+    /** Has the world been generated before the reset */
+    public static boolean PREGENERATED = false;
 
     /** The logger of the plugin */
     private ComponentLogger logger;
@@ -43,50 +55,104 @@ public class DaybreakBootstrap implements PluginBootstrap {
      */
     @Override
     public void bootstrap(@NotNull BootstrapContext context) {
-        // check if server should reset
-        if (!Files.exists(LOCK_FILE))
-            return;
-
         this.logger = context.getLogger();
-        this.logger.info("reset.lock found, resetting server...");
 
+        // continue deleting worlds left over from previous resets
         try {
-            // read world data of survivors
-            var survivors = Files.readAllLines(LOCK_FILE);
-            var stats = survivors.stream().distinct().collect(Collectors.toMap(uuid -> uuid, uuid -> tryRead(Path.of("world/stats/" + uuid + ".json"))));
-            var playerdata = survivors.stream().distinct().collect(Collectors.toMap(uuid -> uuid, uuid -> tryRead(Path.of("world/playerdata/" + uuid + ".dat"))));
-            var advancements = survivors.stream().distinct().collect(Collectors.toMap(uuid -> uuid, uuid -> tryRead(Path.of("world/advancements/" + uuid + ".json"))));
-
-            // read deaths
-            try (var stream = Files.list(Path.of("world/playerdata/"))) {
-                LAST_DEATHS = stream
-                    .filter(path -> !path.getFileName().toString().contains("dat_old") && !survivors.contains(path.getFileName().toString().split("\\.dat")[0]))
-                    .map(c -> UUID.fromString(c.getFileName().toString().split("\\.dat")[0]))
-                    .collect(Collectors.toList());
+            ParallelDeleter.deleteAsync(ParallelDeleter.findTrash(Path.of(".")), this.logger);
+        } catch (Exception e) {
+            this.logger.error("Unable to find leftover world trash", e);
+        }
+
+        // check if server should reset
+        if (!Files.exists(LOCK_FILE)) {
+            try {
+                Files.deleteIfExists(JOURNAL_FILE);
             } catch (Exception e) {
-                System.err.println("Unable to find list players");
+                this.logger.error("Unable to delete stale reset journal", e);
             }
+            return;
+        }
 
-            // recursively delete world
-            FileUtils.deleteDirectory(new File("world"));
-            Files.deleteIfExists(Path.of("banned-ips.json"));
-            Files.deleteIfExists(Path.of("banned-players.json"));
-
-            // recreate folder structures
-            Files.createDirectories(Path.of("world/stats"));
-            Files.createDirectories(Path.of("world/playerdata"));
-            Files.createDirectories(Path.of("world/advancements"));
-
-            // write world data of survivors
-            stats.forEach((uuid, data) -> tryWrite(Path.of("world/stats/" + uuid + ".json"), data));
-            playerdata.forEach((uuid, data) -> tryWrite(Path.of("world/playerdata/" + uuid + ".dat"), data));
-            advancements.forEach((uuid, data) -> tryWrite(Path.of("world/advancements/" + uuid + ".json"), data));
+        this.logger.info("reset.lock found, resetting server...");
 
-            // delete lock file
-            Files.deleteIfExists(SURVIVORS_FILE);
-            Files.move(LOCK_FILE, LAST_SESSION_FILE, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            var start = System.nanoTime();
+            var journal = new ResetJournal(JOURNAL_FILE);
+            if (!journal.isEmpty())
+                this.logger.info("Resuming interrupted reset...");
+
+            var survivors = Files.readAllLines(LOCK_FILE).stream().distinct().toList();
+            var world = Path.of("world");
+            var nextWorldReady = world.resolve(NEXT_WORLD_READY_FILE.getFileName());
+
+            // move world data of survivors into staging directory
+            this.runPhase(journal, ResetPhase.STAGE_SURVIVORS, () -> {
+                for (var uuid : survivors)
+                    SurvivorFiles.stage(world, uuid, this.logger);
+            });
+
+            // move world out of the way and swap in world generated during the last day
+            this.runPhase(journal, ResetPhase.DELETE, () -> {
+                if (!Files.exists(nextWorldReady)) {
+                    Path trash;
+                    try {
+                        trash = ParallelDeleter.trash(world);
+                    } catch (IOException e) {
+                        this.logger.warn("Unable to move world to trash, deleting it in place...", e);
+                        FileUtils.deleteDirectory(world.toFile());
+                        trash = null;
+                    }
+                    if (trash != null)
+                        ParallelDeleter.deleteAsync(List.of(trash), this.logger);
+
+                    // swap in next world or discard it if unfinished
+                    if (Files.exists(NEXT_WORLD_READY_FILE)) {
+                        Files.deleteIfExists(NEXT_WORLD_DIR.resolve("uid.dat"));
+                        Files.move(NEXT_WORLD_DIR, world, StandardCopyOption.ATOMIC_MOVE);
+                        this.logger.info("Swapped in pregenerated world");
+                    } else {
+                        var unfinished = ParallelDeleter.trash(NEXT_WORLD_DIR);
+                        if (unfinished != null)
+                            ParallelDeleter.deleteAsync(List.of(unfinished), this.logger);
+                    }
+                }
+
+                // discard world of the last hot reset
+                if (Files.exists(PLAY_WORLD_FILE)) {
+                    var playWorld = ParallelDeleter.trash(Path.of(Files.readString(PLAY_WORLD_FILE).trim()));
+                    if (playWorld != null)
+                        ParallelDeleter.deleteAsync(List.of(playWorld), this.logger);
+                    Files.delete(PLAY_WORLD_FILE);
+                }
+
+                // recreate folder structures
+                Files.createDirectories(world.resolve("stats"));
+                Files.createDirectories(world.resolve("playerdata"));
+                Files.createDirectories(world.resolve("advancements"));
+            });
+
+            // move world data of survivors back into world
+            this.runPhase(journal, ResetPhase.RESTORE, () -> {
+                for (var uuid : survivors)
+                    SurvivorFiles.restore(world, uuid);
+                FileUtils.deleteDirectory(SurvivorFiles.STAGING_DIR.toFile());
+            });
+
+            // delete bans, start the new day in the state store and delete the lock file
+            this.runPhase(journal, ResetPhase.FINALIZE, () -> {
+                Files.deleteIfExists(Path.of("banned-ips.json"));
+                Files.deleteIfExists(Path.of("banned-players.json"));
+                var store = new StateStore(StateStore.STATE_FILE, this.logger);
+                store.startDay(survivors.stream().map(UUID::fromString).toList());
+                store.flush();
+            });
+            PREGENERATED = Files.deleteIfExists(nextWorldReady);
+            Files.delete(LOCK_FILE);
+            journal.delete();
 
             RESET = true;
+            this.logPhase("Reset server", start);
         } catch (Exception e) {
             this.logger.error("reset.lock found, resetting server...", e);
             System.exit(-1);
@@ -94,35 +160,38 @@ public class DaybreakBootstrap implements PluginBootstrap {
     }
 
     /**
-     * Tries to read all bytes from a given file, crashing the jvm on failure.
-     * @param path The path to the file.
+     * Run a reset phase unless it has been completed before, recording it in the journal.
+     * @param journal The reset journal.
+     * @param phase The phase to run.
+     * @param action The action of the phase.
+     * @throws Exception If the phase failed.
      */
-    private byte[] tryRead(Path path) {
-        try {
-            if (!Files.exists(path)) {
-                this.logger.info("Warning! File " + path + " does not exist!");
-                return new byte[0];
-            }
-
-            return Files.readAllBytes(path);
-        } catch (Exception e) {
-            this.logger.error("Failed to read file " + path + "!", e);
-            System.exit(-1);
+    private void runPhase(ResetJournal journal, ResetPhase phase, PhaseAction action) throws Exception {
+        if (journal.isDone(phase)) {
+            this.logger.info("Skipping " + phase + ", it was completed before");
+            return;
         }
-        return null;
+
+        var start = System.nanoTime();
+        action.run();
+        journal.complete(phase);
+        this.logPhase("Completed " + phase, start);
     }
 
     /**
-     * Tries to write a file, crashing the jvm on failure.
-     * @param path The path to the file.
-     * @param data The data to write.
+     * Action of a reset phase.
      */
-    private void tryWrite(Path path, byte[] data) {
-        try {
-            Files.write(path, data);
-        } catch (Exception e) {
-            this.logger.error("Failed to write file " + path + "!", e);
-            System.exit(-1);
-        }
+    @FunctionalInterface
+    private interface PhaseAction {
+        void run() throws Exception;
+    }
+
+    /**
+     * Log the duration of a reset phase.
+     * @param name The name of the phase.
+     * @param start The start of the phase in nanoseconds.
+     */
+    private void logPhase(String name, long start) {
+        this.logger.info(name + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
     }
 }
@@ -0,0 +1,88 @@
+package gay.pancake.daybreak;
+
+/**
+ * Settings of the plugin, read from environment variables.
+ * @author Pancake
+ */
+public class DaybreakConfig {
+
+    /** Whether a world for the next day should be generated in the background */
+    public static final boolean WORLD_POOL = bool("DAYBREAK_WORLD_POOL", false);
+    /** First hour (utc) in which the next world may be generated */
+    public static final int WORLD_POOL_START_HOUR = integer("DAYBREAK_WORLD_POOL_START_HOUR", 4);
+    /** Hour (utc) after which the next world may no longer be generated */
+    public static final int WORLD_POOL_END_HOUR = integer("DAYBREAK_WORLD_POOL_END_HOUR", 16);
+    /** Milliseconds per tick above which generation of the next world is paused */
+    public static final double WORLD_POOL_MAX_MSPT = decimal("DAYBREAK_WORLD_POOL_MAX_MSPT", 35.0);
+    /** Whether chunks of the world are never saved, as the world is deleted at reset anyway (a crash loses the day's world changes) */
+    public static final boolean EPHEMERAL_WORLD = bool("DAYBREAK_EPHEMERAL_WORLD", false);
+    /** Pregenerator to generate worlds with, either chunky or native */
+    public static final String PREGENERATOR = string("DAYBREAK_PREGENERATOR", "chunky");
+    /** Milliseconds per tick above which generation of the empty ring outside the border is paused */
+    public static final double RING_MAX_MSPT = decimal("DAYBREAK_RING_MAX_MSPT", 40.0);
+    /** Whether the world is swapped at reset without restarting the server */
+    public static final boolean HOT_RESET = bool("DAYBREAK_HOT_RESET", false);
+    /** Minimum distance in blocks kept between new spawns and other players or recent spawns where possible */
+    public static final int SPAWN_SEPARATION = integer("DAYBREAK_SPAWN_SEPARATION", 64);
+    /** Players per second admitted into the world while many players are joining */
+    public static final double ADMISSION_RATE = decimal("DAYBREAK_ADMISSION_RATE", 2.0);
+    /** Milliseconds per tick above which no players are admitted into the world */
+    public static final double ADMISSION_MAX_MSPT = decimal("DAYBREAK_ADMISSION_MAX_MSPT", 45.0);
+    /** Milliseconds per tick above which the view distance of players is lowered */
+    public static final double VIEW_MAX_MSPT = decimal("DAYBREAK_VIEW_MAX_MSPT", 40.0);
+    /** Whether chunk system thread counts are raised for the boot generating a new world and restored afterwards */
+    public static final boolean PREGEN_PROFILE = bool("DAYBREAK_PREGEN_PROFILE", false);
+    /** Whether gameplay events are exported as newline delimited json next to the event log */
+    public static final boolean EVENT_EXPORT = bool("DAYBREAK_EVENT_EXPORT", true);
+    /** Number of event log segments of about 3 MB each kept after every sink has read them */
+    public static final int EVENT_RETAINED_SEGMENTS = integer("DAYBREAK_EVENT_RETAINED_SEGMENTS", 8);
+    /** Megabytes the json export grows to before it is rotated, keeping one rotated file */
+    public static final int EVENT_EXPORT_MAX_MB = integer("DAYBREAK_EVENT_EXPORT_MAX_MB", 64);
+    /** Statistics indexed for leaderboards as comma separated name=category/statistic entries, a statistic of * sums the whole category */
+    public static final String STATS = string("DAYBREAK_STATS", "mob_kills=minecraft:custom/minecraft:mob_kills,play_time=minecraft:custom/minecraft:play_time,deaths=minecraft:custom/minecraft:deaths,mined=minecraft:mined/*");
+
+    /**
+     * Read a string setting.
+     * @param name The name of the environment variable.
+     * @param def The default value.
+     * @return The value of the setting.
+     */
+    private static String string(String name, String def) {
+        var value = System.getenv(name);
+        return value == null ? def : value.trim();
+    }
+
+    /**
+     * Read a boolean setting.
+     * @param name The name of the environment variable.
+     * @param def The default value.
+     * @return The value of the setting.
+     */
+    private static boolean bool(String name, boolean def) {
+        var value = System.getenv(name);
+        return value == null ? def : Boolean.parseBoolean(value.trim());
+    }
+
+    /**
+     * Read an integer setting.
+     * @param name The name of the environment variable.
+     * @param def The default value.
+     * @return The value of the setting.
+     */
+    private static int integer(String name, int def) {
+        var value = System.getenv(name);
+        return value == null ? def : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Read a decimal setting.
+     * @param name The name of the environment variable.
+     * @param def The default value.
+     * @return The value of the setting.
+     */
+    private static double decimal(String name, double def) {
+        var value = System.getenv(name);
+        return value == null ? def : Double.parseDouble(value.trim());
+    }
+
+}
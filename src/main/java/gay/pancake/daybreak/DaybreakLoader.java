@@ -3,9 +3,11 @@ package gay.pancake.daybreak;
 import io.papermc.paper.plugin.loader.PluginClasspathBuilder;
 import io.papermc.paper.plugin.loader.PluginLoader;
 import lombok.SneakyThrows;
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Properties;
@@ -21,7 +23,11 @@ public class DaybreakLoader implements PluginLoader {
             BUKKIT_YML = Path.of("bukkit.yml"),
             SPIGOT_YML = Path.of("spigot.yml"),
             PAPER_GLOBAL_YML = Path.of("config/paper-global.yml"),
-            PAPER_WORLD_YML = Path.of("config/paper-world-defaults.yml");
+            PAPER_WORLD_YML = Path.of("config/paper-world-defaults.yml"),
+            PLAY_PROFILE_FILE = Path.of("play_profile.properties");
+
+    /** Settings in paper-global.yml changed by the pregen profile */
+    private static final String[] PROFILE_KEYS = { "chunk-system.io-threads", "chunk-system.worker-threads" };
 
     /**
      * Loads the plugin
@@ -31,6 +37,10 @@ public class DaybreakLoader implements PluginLoader {
     public void classloader(@NotNull PluginClasspathBuilder classpathBuilder) {
         var logger = classpathBuilder.getContext().getLogger();
 
+        /* apply pregen profile on the first boot after a reset */
+        if (DaybreakConfig.PREGEN_PROFILE)
+            applyPregenProfile(logger);
+
         /* check server.properties */
         logger.info("Checking server.properties...");
         var properties = new Properties();
@@ -105,4 +115,67 @@ public class DaybreakLoader implements PluginLoader {
         if (yaml.getInt("spawn.keep-spawn-loaded-range") != renderDistance + worldRadius)
             logger.warn("spawn.keep-spawn-loaded-range: " + (renderDistance + worldRadius) + " in paper-world-defaults.yml: Keep spawn loaded range is not set to " + (renderDistance + worldRadius) + ", this is not recommended for Daybreak!");
     }
+
+    /**
+     * Apply the pregen profile if the world is about to be generated, saving the play profile to restore it afterwards.
+     * @param logger The logger to report changes to.
+     * @throws IOException If the profile could not be applied.
+     */
+    private static void applyPregenProfile(ComponentLogger logger) throws IOException {
+        // profile is still applied from an interrupted boot
+        if (Files.exists(PLAY_PROFILE_FILE))
+            return;
+
+        // world is only generated on boot after a reset without a pregenerated world or on the very first boot
+        var generate = Files.exists(DaybreakBootstrap.LOCK_FILE) ? !Files.exists(DaybreakBootstrap.NEXT_WORLD_READY_FILE) : !Files.exists(Path.of("world"));
+        if (!generate)
+            return;
+
+        // derive thread counts from available cores, leaving one for the main thread
+        var cores = Runtime.getRuntime().availableProcessors();
+        int[] values = { Math.max(2, cores / 2), Math.max(1, cores - 1) };
+
+        logger.info("Applying pregen profile...");
+        var yaml = YamlConfiguration.loadConfiguration(PAPER_GLOBAL_YML.toFile());
+        var play = new Properties();
+        for (var i = 0; i < PROFILE_KEYS.length; i++) {
+            var before = yaml.getInt(PROFILE_KEYS[i], -1);
+            play.setProperty(PROFILE_KEYS[i], String.valueOf(before));
+            yaml.set(PROFILE_KEYS[i], values[i]);
+            logger.info(PROFILE_KEYS[i] + " in paper-global.yml: " + before + " -> " + values[i]);
+        }
+
+        // save play profile first, so an interrupted write can never lose it
+        try (var writer = Files.newBufferedWriter(PLAY_PROFILE_FILE)) {
+            play.store(writer, "Daybreak play profile");
+        }
+        yaml.save(PAPER_GLOBAL_YML.toFile());
+    }
+
+    /**
+     * Restore the play profile once the world has been generated. Thread counts are only read on startup, so the play profile takes effect on the next boot.
+     * @param logger The logger to report changes to.
+     */
+    @SneakyThrows
+    public static void restorePlayProfile(ComponentLogger logger) {
+        if (!Files.exists(PLAY_PROFILE_FILE))
+            return;
+
+        logger.info("Restoring play profile...");
+        var play = new Properties();
+        try (var reader = Files.newBufferedReader(PLAY_PROFILE_FILE)) {
+            play.load(reader);
+        }
+
+        var yaml = YamlConfiguration.loadConfiguration(PAPER_GLOBAL_YML.toFile());
+        for (var key : PROFILE_KEYS) {
+            var before = yaml.getInt(key, -1);
+            var after = Integer.parseInt(play.getProperty(key, "-1"));
+            yaml.set(key, after);
+            logger.info(key + " in paper-global.yml: " + before + " -> " + after);
+        }
+        yaml.save(PAPER_GLOBAL_YML.toFile());
+        Files.delete(PLAY_PROFILE_FILE);
+    }
+
 }
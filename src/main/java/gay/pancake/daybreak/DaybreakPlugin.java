@@ -1,39 +1,65 @@
 package gay.pancake.daybreak;
 
+import gay.pancake.daybreak.admission.AdmissionQueue;
+import gay.pancake.daybreak.admission.LoginGate;
+import gay.pancake.daybreak.admission.ViewGovernor;
 import gay.pancake.daybreak.commands.DaybreakCommand;
 import gay.pancake.daybreak.commands.DisconnectCommand;
 import gay.pancake.daybreak.commands.HeadsCommand;
 import gay.pancake.daybreak.commands.LeaderboardCommand;
+import gay.pancake.daybreak.events.DailyDigest;
+import gay.pancake.daybreak.events.DeathCause;
+import gay.pancake.daybreak.events.EventLog;
+import gay.pancake.daybreak.events.EventType;
+import gay.pancake.daybreak.events.NdjsonSink;
 import gay.pancake.daybreak.generators.VanillaGenerator;
+import gay.pancake.daybreak.history.DayArchive;
 import gay.pancake.daybreak.listeners.CombatListener;
 import gay.pancake.daybreak.listeners.CrownListener;
 import gay.pancake.daybreak.listeners.MiscListener;
 import gay.pancake.daybreak.listeners.SurvivalListener;
 import gay.pancake.daybreak.pdc.HeadCollectionDataType;
+import gay.pancake.daybreak.pregen.GenerationController;
+import gay.pancake.daybreak.pregen.Pregenerator;
+import gay.pancake.daybreak.reset.SurvivorFiles;
+import gay.pancake.daybreak.session.SessionCache;
+import gay.pancake.daybreak.stats.StatsIndex;
+import gay.pancake.daybreak.store.StateStore;
 import gay.pancake.daybreak.webhook.WebhookExecutor;
+import gay.pancake.daybreak.worlds.HotReset;
+import gay.pancake.daybreak.worlds.SpawnGrid;
+import gay.pancake.daybreak.worlds.SpawnPool;
+import gay.pancake.daybreak.worlds.SurfaceCache;
+import gay.pancake.daybreak.worlds.WorldPool;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.SneakyThrows;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import net.kyori.adventure.util.TriState;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.NamespacedKey;
 import org.bukkit.World;
+import org.bukkit.WorldCreator;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.generator.ChunkGenerator;
-import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.codehaus.plexus.util.FileUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.popcraft.chunky.api.ChunkyAPI;
 
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -58,18 +84,52 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
     /** Prefix for messages */
     public final static TagResolver.Single PREFIX = parsed("prefix", "<gold>»</gold> <red>");
 
-    /** List of survivors */
-    private final List<UUID> survivors = new LinkedList<>();
-    /** List of survivors from last session */
-    public final List<UUID> lastSession = new LinkedList<>();
+    /** Store of survivors, deaths and crowns */
+    public StateStore store;
+    /** Log of gameplay events */
+    public EventLog events;
+    /** Statistics of the current and last day */
+    public DailyDigest digest;
+    /** Archive of finished days */
+    public DayArchive history;
     /** Webhook executor */
     public final WebhookExecutor webhookExecutor = new WebhookExecutor();
     /** Whether the server is online */
-    @Getter private boolean online = false;
+    @Getter @Setter private volatile boolean online = false;
+    /** Name of the world players play in */
+    @Getter private String worldName = "world";
     /** Combat listener */
     public CombatListener combatListener;
     /** Crown listeners */
     public CrownListener crownListener;
+    /** Survival listener */
+    public SurvivalListener survivalListener;
+    /** World pool generating the next world or null if disabled */
+    public WorldPool worldPool;
+    /** Hot reset of the world or null if disabled */
+    public HotReset hotReset;
+    /** Generation controller of the play world */
+    public GenerationController generation;
+    /** Surface cache of the play world */
+    public SurfaceCache surfaceCache;
+    /** Pool of safe spawn locations in the play world */
+    public SpawnPool spawnPool;
+    /** Grid of occupied areas in the play world */
+    public SpawnGrid spawnGrid;
+    /** Queue admitting joining players into the world */
+    public AdmissionQueue admission;
+    /** Governor of the view distance of players */
+    public ViewGovernor viewGovernor;
+    /** Gate rejecting dead players at login */
+    public LoginGate loginGate;
+    /** Sessions of online players */
+    public SessionCache sessions;
+    /** Index of vanilla statistics for leaderboards */
+    public StatsIndex stats;
+    /** Executor of the automatic reset tasks */
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+    /** Scheduled reset and warning tasks of the next midnight */
+    private final List<ScheduledFuture<?>> resetTasks = new ArrayList<>();
 
     /**
      * Enable daybreak plugin
@@ -82,31 +142,92 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
         Bukkit.getCommandMap().register("disconnect", "dc", new DisconnectCommand(this));
         Bukkit.getCommandMap().register("leaderboard", "lb", new LeaderboardCommand(this));
 
+        // load state in one pass
+        this.store = new StateStore(StateStore.STATE_FILE, this.getComponentLogger());
+        this.store.startWriter();
+
+        // open event log
+        this.events = new EventLog(EventLog.EVENTS_DIR, DaybreakConfig.EVENT_RETAINED_SEGMENTS, this.getComponentLogger());
+        this.events.addSink(this.digest = new DailyDigest(DailyDigest.DIGEST_FILE, this.getComponentLogger()));
+        this.events.addSink(this.history = new DayArchive(DayArchive.HISTORY_DIR, this.digest, this.getComponentLogger()));
+        if (DaybreakConfig.EVENT_EXPORT)
+            this.events.addSink(new NdjsonSink(EventLog.EVENTS_DIR.resolve("events.ndjson"), DaybreakConfig.EVENT_EXPORT_MAX_MB * 1024L * 1024L));
+        this.events.startReader();
+
         // register listeners
-        Bukkit.getPluginManager().registerEvents(new SurvivalListener(this), this);
+        Bukkit.getPluginManager().registerEvents(this.survivalListener = new SurvivalListener(this), this);
         Bukkit.getPluginManager().registerEvents(new MiscListener(this), this);
         Bukkit.getPluginManager().registerEvents(this.combatListener = new CombatListener(this), this);
         Bukkit.getPluginManager().registerEvents(this.crownListener = new CrownListener(this), this);
+        Bukkit.getPluginManager().registerEvents(this.surfaceCache = new SurfaceCache(this), this);
+        Bukkit.getPluginManager().registerEvents(this.loginGate = new LoginGate(this), this);
+        Bukkit.getPluginManager().registerEvents(this.sessions = new SessionCache(this), this);
+        Bukkit.getPluginManager().registerEvents(this.stats = new StatsIndex(this), this);
+        this.spawnPool = new SpawnPool(this);
+        this.spawnGrid = new SpawnGrid(this);
+        this.admission = new AdmissionQueue(this, this.survivalListener::admit);
+        this.viewGovernor = new ViewGovernor(this);
+
+        // report survivors
+        var survivors = this.store.getSurvivors();
+        this.getSLF4JLogger().info("In this session, there are " + survivors.size() + " survivors:\n    " + survivors.stream().map(Object::toString).collect(Collectors.joining("\n    ")));
+        var lastSession = this.store.getLastSession();
+        this.getSLF4JLogger().info("From the previous session, there are " + lastSession.size() + " survivors that have yet to join:\n    " + lastSession.stream().map(Object::toString).collect(Collectors.joining("\n    ")));
+
+        // discard survivor data staged before a reset that never happened
+        FileUtils.deleteDirectory(SurvivorFiles.STAGING_DIR.toFile());
+
+        // load name of world created by the last hot reset
+        if (Files.exists(PLAY_WORLD_FILE))
+            this.worldName = Files.readString(PLAY_WORLD_FILE).trim();
+        if (DaybreakConfig.HOT_RESET)
+            this.hotReset = new HotReset(this);
 
-        // load survivors
-        if (Files.exists(SURVIVORS_FILE))
-            this.survivors.addAll(Files.readAllLines(SURVIVORS_FILE).stream().map(UUID::fromString).distinct().toList());
-        this.getSLF4JLogger().info("In this session, there are " + this.survivors.size() + " survivors:\n    " + this.survivors.stream().map(Object::toString).collect(Collectors.joining("\n    ")));
+        // create automatic reset task
+        this.scheduleReset(LocalDateTime.now(Clock.systemUTC()));
+    }
 
-        // load last session survivors
-        if (Files.exists(LAST_SESSION_FILE))
-            this.lastSession.addAll(Files.readAllLines(LAST_SESSION_FILE).stream().map(UUID::fromString).distinct().toList());
-        this.getSLF4JLogger().info("From the previous session, there are " + this.lastSession.size() + " survivors that have yet to join:\n    " + this.lastSession.stream().map(Object::toString).collect(Collectors.joining("\n    ")));
+    /**
+     * Schedule the reset at the next midnight and its warnings, replacing any previously scheduled reset.
+     * @param after Time after which the next midnight is searched.
+     */
+    private void scheduleReset(LocalDateTime after) {
+        // cancel the reset scheduled before, so that only one reset runs at midnight
+        this.resetTasks.forEach(task -> task.cancel(false));
+        this.resetTasks.clear();
 
-        // create automatic reset task
-        var executor = Executors.newScheduledThreadPool(4);
         var now = LocalDateTime.now(Clock.systemUTC());
-        var secondsUntilMidnight = now.until(now.plusDays(1).withHour(0).withMinute(0).withSecond(0).withNano(0), ChronoUnit.SECONDS);
-        executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 5 minutes.", PREFIX)), Math.max(1, secondsUntilMidnight - 60*5), TimeUnit.SECONDS);
-        executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 60 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 60), TimeUnit.SECONDS);
-        executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 30 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 30), TimeUnit.SECONDS);
-        executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 5 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 5), TimeUnit.SECONDS);
-        executor.schedule(() -> Bukkit.getScheduler().runTask(this, this::reset), secondsUntilMidnight, TimeUnit.SECONDS);
+        var secondsUntilMidnight = now.until(after.plusDays(1).withHour(0).withMinute(0).withSecond(0).withNano(0), ChronoUnit.SECONDS);
+        this.resetTasks.add(this.executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 5 minutes.", PREFIX)), Math.max(1, secondsUntilMidnight - 60*5), TimeUnit.SECONDS));
+        this.resetTasks.add(this.executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 60 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 60), TimeUnit.SECONDS));
+        this.resetTasks.add(this.executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 30 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 30), TimeUnit.SECONDS));
+        this.resetTasks.add(this.executor.schedule(() -> Bukkit.broadcast(miniMessage().deserialize("<prefix>The server will reset in 5 seconds.", PREFIX)), Math.max(1, secondsUntilMidnight - 5), TimeUnit.SECONDS));
+        this.resetTasks.add(this.executor.schedule(() -> Bukkit.getScheduler().runTask(this, this::reset), secondsUntilMidnight, TimeUnit.SECONDS));
+
+        // stage survivor data during the countdown, so the reset only has to move what changed since
+        if (!DaybreakConfig.HOT_RESET)
+            for (var seconds : new int[] { 60*5, 60, 30 })
+                this.resetTasks.add(this.executor.schedule(() -> Bukkit.getScheduler().runTask(this, () -> {
+                    var snapshot = this.store.getSurvivors().stream().map(UUID::toString).toList();
+                    this.executor.execute(() -> this.prestageSurvivors(snapshot));
+                }), Math.max(1, secondsUntilMidnight - seconds), TimeUnit.SECONDS));
+    }
+
+    /**
+     * Copy the world data of survivors into the staging directory.
+     * @param survivors The survivors to stage.
+     */
+    private void prestageSurvivors(List<String> survivors) {
+        var start = System.nanoTime();
+        var copied = 0;
+        for (var uuid : survivors) {
+            try {
+                copied += SurvivorFiles.prestage(Path.of("world"), uuid);
+            } catch (Exception e) {
+                this.getSLF4JLogger().warn("Unable to stage data of survivor " + uuid, e);
+            }
+        }
+        this.getSLF4JLogger().info("Staged " + copied + " changed files of " + survivors.size() + " survivors in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
     }
 
     /**
@@ -114,28 +235,51 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
      */
     @Override @SneakyThrows
     public void onDisable() {
-        // save survivors
-        Files.write(SURVIVORS_FILE, this.survivors.stream().map(UUID::toString).distinct().toList());
-        Files.write(LAST_SESSION_FILE, this.lastSession.stream().map(UUID::toString).distinct().toList());
+        // write remaining state changes and events
+        this.store.close();
+        this.events.close();
     }
 
     /**
-     * Initialize world.
-     * @param w World that was initialized
+     * Initialize world generation.
+     * @param pregenerator Pregenerator generating the worlds
      */
-    public void onChunkyInit(World w) {
-        // preload world
-        var chunky = Bukkit.getServer().getServicesManager().load(ChunkyAPI.class);
-        chunky.startTask("world", "square", 0, 0, BORDER_RADIUS + (16*16), BORDER_RADIUS + (16*16), "concentric");
-        chunky.onGenerationComplete(e -> {
-            this.getLogger().info("Chunk generation completed for world");
-            this.online = true;
-
-            // send reset webhook if server has reset
-            if (RESET)
-                Bukkit.getScheduler().runTask(this, () -> this.webhookExecutor.sendResetMessage(this));
-        });
+    public void onPregenInit(Pregenerator pregenerator) {
+        if (this.generation != null)
+            return;
 
+        // load world created by the last hot reset
+        if (this.getWorld() == null)
+            new WorldCreator(this.worldName).generator(new VanillaGenerator()).keepSpawnLoaded(TriState.FALSE).createWorld();
+
+        // preload world unless it was generated during the last day
+        this.generation = new GenerationController(this, pregenerator);
+        if (PREGENERATED) {
+            this.getLogger().info("World was generated during the last day, skipping chunk generation");
+            this.onWorldGenerated();
+        } else
+            this.generation.start(this.worldName);
+
+        // generate world of the next day in the background
+        if (DaybreakConfig.WORLD_POOL)
+            this.worldPool = new WorldPool(this, pregenerator);
+    }
+
+    /**
+     * Open the server once the area inside the border has been generated.
+     */
+    public void onWorldGenerated() {
+        this.online = true;
+        DaybreakLoader.restorePlayProfile(this.getComponentLogger());
+        this.surfaceCache.backfill();
+
+        // send held survivors to the new world after a hot reset
+        if (this.hotReset != null)
+            this.hotReset.release();
+
+        // send reset webhook if server has reset
+        if (RESET)
+            this.webhookExecutor.sendResetMessage(this);
     }
 
     /**
@@ -154,7 +298,40 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
      */
     @SneakyThrows
     public void reset() {
-        Files.write(LOCK_FILE, this.survivors.stream().map(UUID::toString).toList()); // write survivors of this world to file
+        // ignore resets while the new world of a hot reset is still being generated
+        if (this.hotReset != null && this.hotReset.isPending()) {
+            this.getSLF4JLogger().warn("Ignoring reset, the last hot reset has not finished yet");
+            return;
+        }
+
+        this.events.append(EventType.RESET, 0, this.store.getSurvivors().size(), null, null);
+
+        // swap world without restarting
+        if (this.hotReset != null) {
+            this.hotReset.run();
+            this.scheduleReset(LocalDateTime.now(Clock.systemUTC()).plusMinutes(1)); // replaces the pending reset, which may run slightly before midnight
+            return;
+        }
+
+        Files.write(LOCK_FILE, this.store.getSurvivors().stream().map(UUID::toString).toList()); // write survivors of this world to file
+        if (!DaybreakConfig.EPHEMERAL_WORLD) {
+            Bukkit.shutdown();
+            return;
+        }
+
+        // kick players first, saving their data, stats and advancements
+        for (var p : List.copyOf(Bukkit.getOnlinePlayers()))
+            p.kick(miniMessage().deserialize("<prefix>The server is resetting.", PREFIX));
+
+        // discard the world, the default world cannot be unloaded so its chunks are unloaded without saving instead, which also excludes chunks that stay loaded from the final save
+        var start = System.nanoTime();
+        var world = this.getWorld();
+        if (world.equals(Bukkit.getWorlds().getFirst()) || !Bukkit.unloadWorld(world, false)) {
+            for (var chunk : world.getLoadedChunks())
+                world.unloadChunk(chunk.getX(), chunk.getZ(), false);
+        }
+        this.getSLF4JLogger().info("Discarded world in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms, stopping without saving it...");
+
         Bukkit.shutdown();
     }
 
@@ -167,6 +344,13 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
         if (p.isOp())
             return;
 
+        // record death and kill
+        var killer = p.getKiller();
+        var cause = p.getLastDamageCause();
+        this.events.append(EventType.DEATH, DeathCause.id(cause == null ? EntityDamageEvent.DamageCause.CUSTOM : cause.getCause()), p.getUniqueId(), killer == null ? null : killer.getUniqueId());
+        if (killer != null)
+            this.events.append(EventType.KILL, 0, killer.getUniqueId(), p.getUniqueId());
+
         // add head to killer
         this.addPlayerHead(p);
 
@@ -178,8 +362,8 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
         p.setGameMode(GameMode.SPECTATOR);
         p.getInventory().clear();
         p.setExp(0.0f);
+        this.store.markDead(p.getUniqueId());
         p.kick(reason);
-        p.banPlayer("§cYou died. You will be unbanned at 0:00 UTC.");
     }
 
     /**
@@ -191,15 +375,12 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
         if (killer == null)
             return;
 
-        var pdc = killer.getPersistentDataContainer();
-
         // update head collection data
-        var data = (Map<UUID, Integer>) pdc.getOrDefault(HEADS_KEY, HEADS_TYPE, new HashMap<UUID, Integer>());
-        data.put(p.getUniqueId(), data.getOrDefault(p.getUniqueId(), 0) + 1);
-        pdc.set(HEADS_KEY, HEADS_TYPE, data);
+        var session = this.sessions.get(killer);
+        var total = session.addHead(p.getUniqueId());
+        killer.getPersistentDataContainer().set(HEADS_KEY, HEADS_TYPE, session.getHeads());
 
         // send message to killer
-        var total = data.values().stream().mapToInt(i -> i).sum();
         killer.sendMessage(miniMessage().deserialize("<prefix>You have collected the head of <gold>" + p.getName() + "</gold>. You now have <gold>" + total + "</gold> head" + (total == 1 ? "" : "s") + ".", PREFIX));
     }
 
@@ -212,36 +393,72 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
         if (killer == null)
             return;
 
-        var sourcePdc = p.getPersistentDataContainer();
-        var targetPdc = killer.getPersistentDataContainer();
+        var source = this.sessions.get(p);
+        var target = this.sessions.get(killer);
 
         // get crown of player
-        var crown = sourcePdc.getOrDefault(CROWN_KEY, PersistentDataType.INTEGER, 0);
+        var crown = source.getCrown();
         if (crown == 0)
             return;
 
         // get crown of killer
-        var killerCrown = targetPdc.getOrDefault(CROWN_KEY, PersistentDataType.INTEGER, 0);
+        var killerCrown = target.getCrown();
         if (killerCrown >= crown)
             return;
 
         // transfer crown
-        targetPdc.set(CROWN_KEY, PersistentDataType.INTEGER, crown);
-        sourcePdc.set(CROWN_KEY, PersistentDataType.INTEGER, killerCrown);
+        target.setCrown(crown);
+        source.setCrown(killerCrown);
+        this.store.setCrownRank(killer.getUniqueId(), crown);
+        this.store.setCrownRank(p.getUniqueId(), killerCrown);
 
         // send message to killer
         killer.sendMessage(miniMessage().deserialize("<prefix>You stole the <gold>Golden Crown</gold> from <gold>" + p.getName() + "</gold>.", PREFIX));
     }
 
+    /**
+     * Get the world players play in.
+     * @return The play world or null if not loaded.
+     */
+    public World getWorld() {
+        return Bukkit.getWorld(this.worldName);
+    }
+
+    /**
+     * Set the world players play in.
+     * @param worldName The name of the world.
+     */
+    @SneakyThrows
+    public void setWorldName(String worldName) {
+        this.worldName = worldName;
+        Files.writeString(PLAY_WORLD_FILE, worldName);
+    }
+
     // Query survivors list
 
+    /**
+     * Get the survivors list.
+     * @return Copy of the survivors.
+     */
+    public List<UUID> getSurvivors() {
+        return this.store.getSurvivors();
+    }
+
+    /**
+     * Get the survivors of the last session that have yet to join.
+     * @return Copy of the last session survivors.
+     */
+    public List<UUID> getLastSession() {
+        return this.store.getLastSession();
+    }
+
     /**
      * Check survivors list for a given player.
      * @param uniqueId The unique id of the player.
      * @return True if the player is a survivor, false otherwise.
      */
     public boolean isSurvivor(UUID uniqueId) {
-        return this.survivors.contains(uniqueId);
+        return this.store.isSurvivor(uniqueId);
     }
 
     /**
@@ -249,8 +466,10 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
      * @param uniqueId The unique id of the player.
      */
     public void addSurvivor(UUID uniqueId) {
-        if (!this.survivors.contains(uniqueId))
-            this.survivors.add(uniqueId);
+        this.store.addSurvivor(uniqueId);
+        var session = this.sessions.get(uniqueId);
+        if (session != null)
+            session.setSurvivor(true);
     }
 
     /**
@@ -258,7 +477,19 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
      * @param uniqueId The unique id of the player.
      */
     public void removeSurvivor(UUID uniqueId) {
-        this.survivors.remove(uniqueId);
+        this.store.removeSurvivor(uniqueId);
+        var session = this.sessions.get(uniqueId);
+        if (session != null)
+            session.setSurvivor(false);
+    }
+
+    /**
+     * Check last session survivors list for a given player.
+     * @param uniqueId The unique id of the player.
+     * @return True if the player survived the last session and has yet to join, false otherwise.
+     */
+    public boolean isLastSessionSurvivor(UUID uniqueId) {
+        return this.store.isLastSession(uniqueId);
     }
 
     /**
@@ -267,7 +498,18 @@ public class DaybreakPlugin extends JavaPlugin implements Listener {
      * @return True if the player joined for the first time, false otherwise.
      */
     public boolean removeLastSessionSurvivor(UUID uniqueId) {
-        return this.lastSession.remove(uniqueId);
+        var session = this.sessions.get(uniqueId);
+        if (session != null)
+            session.setLastSession(false);
+        return this.store.removeLastSession(uniqueId);
+    }
+
+    /**
+     * Replace the last session survivors with the survivors of this session.
+     */
+    public void rotateSurvivors() {
+        this.store.rotate();
+        this.sessions.refresh();
     }
 
 }
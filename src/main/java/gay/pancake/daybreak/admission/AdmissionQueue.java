@@ -0,0 +1,157 @@
+package gay.pancake.daybreak.admission;
+
+import gay.pancake.daybreak.DaybreakConfig;
+import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.worlds.HotReset;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.LinkedHashSet;
+import java.util.function.Consumer;
+
+import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
+import static net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.unparsed;
+
+/**
+ * Admits joining players into the world in paced batches, holding the rest in limbo while the server is under load.
+ * @author Pancake
+ */
+public class AdmissionQueue {
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Called with every admitted player */
+    private final Consumer<Player> admit;
+    /** Players waiting in limbo in order of arrival */
+    private final LinkedHashSet<Player> queue = new LinkedHashSet<>();
+    /** World holding waiting players or null if the server has not loaded yet */
+    private World holding;
+
+    /** Admissions available in the current tick */
+    private double budget;
+    /** Exponentially weighted admissions per second */
+    @Getter private double rate = DaybreakConfig.ADMISSION_RATE;
+    /** Admissions since the last rate update */
+    private int admitted;
+    /** Total number of players admitted through the queue */
+    @Getter private long total;
+
+    /**
+     * Initialize admission queue.
+     * @param plugin Daybreak plugin instance.
+     * @param admit Called with every admitted player.
+     */
+    public AdmissionQueue(DaybreakPlugin plugin, Consumer<Player> admit) {
+        this.plugin = plugin;
+        this.admit = admit;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::tick, 1, 1);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::update, 20, 20);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            if (!this.queue.isEmpty())
+                this.plugin.getLogger().info(this.describe());
+        }, 20*30, 20*30);
+    }
+
+    /**
+     * Load the world holding waiting players, once the server has loaded its worlds.
+     */
+    public void load() {
+        this.holding = HotReset.getHoldingWorld();
+    }
+
+    /**
+     * Admit a player right away if the server has capacity, otherwise hold them in limbo until it is their turn.
+     * @param player The player.
+     */
+    public void enqueue(Player player) {
+        if (this.queue.isEmpty() && this.budget >= 1.0) {
+            this.budget -= 1.0;
+            this.admit(player);
+            return;
+        }
+
+        this.queue.add(player);
+        player.teleport(this.holding.getSpawnLocation());
+        player.sendMessage(miniMessage().deserialize("<prefix>Many players are joining right now. You will be sent into the world shortly.", DaybreakPlugin.PREFIX));
+        this.show(player, this.queue.size());
+    }
+
+    /**
+     * Remove a player from the queue.
+     * @param player The player.
+     */
+    public void remove(Player player) {
+        this.queue.remove(player);
+    }
+
+    /**
+     * Get the number of players waiting.
+     * @return The length of the queue.
+     */
+    public int size() {
+        return this.queue.size();
+    }
+
+    /**
+     * Describe the state of the queue.
+     * @return The description.
+     */
+    public String describe() {
+        return String.format("Admission queue: %d waiting, %.2f/s admitted (limit %.2f/s), %d admitted in total", this.queue.size(), this.rate, DaybreakConfig.ADMISSION_RATE, this.total);
+    }
+
+    /**
+     * Refill the admission budget depending on the tick time and admit waiting players.
+     */
+    private void tick() {
+        // slow down admissions as the tick time approaches the limit
+        var mspt = Bukkit.getAverageTickTime();
+        var factor = mspt < DaybreakConfig.ADMISSION_MAX_MSPT * 0.8 ? 1.0 : mspt < DaybreakConfig.ADMISSION_MAX_MSPT ? 0.5 : 0.0;
+        this.budget = Math.min(Math.max(1.0, DaybreakConfig.ADMISSION_RATE), this.budget + DaybreakConfig.ADMISSION_RATE / 20.0 * factor);
+
+        while (this.budget >= 1.0 && !this.queue.isEmpty()) {
+            var player = this.queue.removeFirst();
+            if (!player.isOnline())
+                continue;
+
+            this.budget -= 1.0;
+            this.admit(player);
+        }
+    }
+
+    /**
+     * Update the admission rate and show queue positions.
+     */
+    private void update() {
+        // measure the rate only while players are admitted, estimating with the limit otherwise
+        this.rate = this.queue.isEmpty() && this.admitted == 0 ? DaybreakConfig.ADMISSION_RATE : this.rate * 0.8 + this.admitted * 0.2;
+        this.admitted = 0;
+
+        var position = 0;
+        for (var player : this.queue)
+            this.show(player, ++position);
+    }
+
+    /**
+     * Show a waiting player their position and estimated waiting time.
+     * @param player The player.
+     * @param position The position in the queue.
+     */
+    private void show(Player player, int position) {
+        var eta = (int) Math.ceil(position / Math.max(0.1, this.rate));
+        player.sendActionBar(miniMessage().deserialize("<gold>Position <position> in queue</gold> <gray>- about <eta>s</gray>", unparsed("position", String.valueOf(position)), unparsed("eta", String.valueOf(eta))));
+    }
+
+    /**
+     * Admit a player into the world.
+     * @param player The player.
+     */
+    private void admit(Player player) {
+        this.admitted++;
+        this.total++;
+        this.admit.accept(player);
+    }
+
+}
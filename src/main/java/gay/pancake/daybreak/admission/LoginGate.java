@@ -0,0 +1,41 @@
+package gay.pancake.daybreak.admission;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
+import static net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.unparsed;
+
+/**
+ * Rejects players that died today and all players while the server is starting, before they reach the main thread.
+ * @author Pancake
+ */
+public class LoginGate implements Listener {
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+
+    /**
+     * Initialize login gate.
+     * @param plugin Daybreak plugin instance.
+     */
+    public LoginGate(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Reject dead players and all players while the server is starting.
+     * @param e Async player pre login event.
+     */
+    @EventHandler
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (!this.plugin.isOnline()) {
+            var progress = this.plugin.generation == null ? "Waiting for world" : this.plugin.generation.getProgress().describe();
+            e.disallow(AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST, miniMessage().deserialize("<red>The server is still starting!</red>\n<gray><progress></gray>", unparsed("progress", progress)));
+        } else if (this.plugin.store.isDead(e.getUniqueId()))
+            e.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, miniMessage().deserialize("<red>You died. You will be unbanned at 0:00 UTC."));
+    }
+
+}
@@ -0,0 +1,117 @@
+package gay.pancake.daybreak.admission;
+
+import gay.pancake.daybreak.DaybreakConfig;
+import gay.pancake.daybreak.DaybreakPlugin;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Lowers the view and send distance of players while the server is under load and restores them step by step once the load drops.
+ * @author Pancake
+ */
+public class ViewGovernor {
+
+    /** Lowest view distance the governor reduces to */
+    private static final int MIN_DISTANCE = 4;
+    /** Chunks the view distance is lowered by per level */
+    private static final int STEP = 2;
+    /** Milliseconds a spread player counts as freshly spread */
+    private static final long FRESH_TIME = 1000L*60;
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Time players were last spread */
+    private final Map<UUID, Long> spread = new HashMap<>();
+
+    /** Number of steps the view distance is currently lowered by */
+    @Getter private int level;
+
+    /**
+     * Initialize view governor.
+     * @param plugin Daybreak plugin instance.
+     */
+    public ViewGovernor(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::tick, 40, 40);
+    }
+
+    /**
+     * Mark a player as freshly spread, lowering their view distance by one more step for a while.
+     * @param player The player.
+     */
+    public void onSpread(Player player) {
+        this.spread.put(player.getUniqueId(), System.currentTimeMillis());
+        this.apply(player);
+    }
+
+    /**
+     * Forget a player that left.
+     * @param player The player.
+     */
+    public void remove(Player player) {
+        this.spread.remove(player.getUniqueId());
+    }
+
+    /**
+     * Describe the state of the governor.
+     * @return The description.
+     */
+    public String describe() {
+        var fresh = this.spread.values().stream().filter(t -> System.currentTimeMillis() - t < FRESH_TIME).count();
+        return String.format("View governor: level %d (view distance %d, %d freshly spread players at %d), %.1f mspt (limit %.1f)",
+                this.level, this.distance(false), fresh, this.distance(true), Bukkit.getAverageTickTime(), DaybreakConfig.VIEW_MAX_MSPT);
+    }
+
+    /**
+     * Adjust the level to the tick time and apply it to every player.
+     */
+    private void tick() {
+        // lower quickly under load, restore one step at a time once the load has dropped
+        var mspt = Bukkit.getAverageTickTime();
+        var maxLevel = Math.max(0, (Bukkit.getViewDistance() - MIN_DISTANCE) / STEP);
+        if (mspt > DaybreakConfig.VIEW_MAX_MSPT && this.level < maxLevel)
+            this.level++;
+        else if (mspt < DaybreakConfig.VIEW_MAX_MSPT * 0.7 && this.level > 0)
+            this.level--;
+
+        var now = System.currentTimeMillis();
+        this.spread.values().removeIf(t -> now - t >= FRESH_TIME);
+        for (var player : Bukkit.getOnlinePlayers())
+            this.apply(player);
+    }
+
+    /**
+     * Apply the view distance of the current level to a player.
+     * @param player The player.
+     */
+    private void apply(Player player) {
+        var distance = this.distance(this.spread.containsKey(player.getUniqueId()));
+        if (player.getViewDistance() == distance)
+            return;
+
+        // the send distance may never be below the view distance
+        if (distance < player.getViewDistance()) {
+            player.setViewDistance(distance);
+            player.setSendViewDistance(distance);
+        } else {
+            player.setSendViewDistance(distance);
+            player.setViewDistance(distance);
+        }
+    }
+
+    /**
+     * Get the view distance of the current level.
+     * @param fresh Whether the player has been spread recently.
+     * @return The view distance.
+     */
+    private int distance(boolean fresh) {
+        var steps = this.level + (fresh && this.level > 0 ? 1 : 0);
+        return Math.max(Math.min(MIN_DISTANCE, Bukkit.getViewDistance()), Bukkit.getViewDistance() - steps * STEP);
+    }
+
+}
@@ -1,14 +1,22 @@
 package gay.pancake.daybreak.commands;
 
 import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.history.DayArchive;
+import lombok.SneakyThrows;
 import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.LocalDate;
+import java.util.Comparator;
 import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
+import static net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.unparsed;
 
 /**
  * Daybreak's main command.
@@ -24,7 +32,7 @@ public class DaybreakCommand extends Command {
      * @param plugin Daybreak plugin instance.
      */
     public DaybreakCommand(DaybreakPlugin plugin) {
-        super("daybreak", "Daybreak's main command", "/daybreak <reset>", List.of("db"));
+        super("daybreak", "Daybreak's main command", "/daybreak <reset|pregen|queue|view|history>", List.of("db"));
         this.plugin = plugin;
     }
 
@@ -50,8 +58,29 @@ public class DaybreakCommand extends Command {
             sender.sendMessage(miniMessage().deserialize("<prefix>Resetting server...", DaybreakPlugin.PREFIX));
             this.plugin.reset();
 
+        } else if (args.length == 1 && "pregen".equals(args[0])) {
+
+            // show world generation progress
+            var progress = this.plugin.generation == null ? "Not generating" : this.plugin.generation.getProgress().describe();
+            sender.sendMessage(miniMessage().deserialize("<prefix><progress>", DaybreakPlugin.PREFIX, unparsed("progress", progress)));
+
+        } else if (args.length == 1 && "queue".equals(args[0])) {
+
+            // show admission queue
+            sender.sendMessage(miniMessage().deserialize("<prefix><queue>", DaybreakPlugin.PREFIX, unparsed("queue", this.plugin.admission.describe())));
+
+        } else if (args.length == 1 && "view".equals(args[0])) {
+
+            // show view distance governor
+            sender.sendMessage(miniMessage().deserialize("<prefix><view>", DaybreakPlugin.PREFIX, unparsed("view", this.plugin.viewGovernor.describe())));
+
+        } else if (args.length == 2 && "history".equals(args[0])) {
+
+            // query the archive off the main thread
+            Bukkit.getScheduler().runTaskAsynchronously(this.plugin, () -> this.history(sender, args[1]));
+
         } else
-            sender.sendMessage(miniMessage().deserialize("<prefix>Command usage: <gold>/daybreak</gold> <red><</red><gold>reset</gold><red>></red>", DaybreakPlugin.PREFIX));
+            sender.sendMessage(miniMessage().deserialize("<prefix>Command usage: <gold>/daybreak</gold> <red><</red><gold>reset</gold><red>|</red><gold>pregen</gold><red>|</red><gold>queue</gold><red>|</red><gold>view</gold><red>|</red><gold>history</gold><red>></red>", DaybreakPlugin.PREFIX));
 
         return true;
     }
@@ -66,6 +95,70 @@ public class DaybreakCommand extends Command {
      */
     @Override
     public @NotNull List<String> tabComplete(@NotNull CommandSender sender, @NotNull String alias, @NotNull String[] args) throws IllegalArgumentException {
-        return List.of("reset");
+        if (args.length == 2 && "history".equals(args[0]))
+            return Bukkit.getOnlinePlayers().stream().map(Player::getName).toList();
+
+        return List.of("reset", "pregen", "queue", "view", "history");
+    }
+
+    /**
+     * Show the archived days of a player or all players of an archived day.
+     * @param sender The command sender.
+     * @param query The name or unique id of a player or an iso date.
+     */
+    @SneakyThrows
+    private void history(CommandSender sender, String query) {
+        // show all players of a day
+        if (query.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            var rows = this.plugin.history.day(LocalDate.parse(query));
+            if (rows == null) {
+                sender.sendMessage(miniMessage().deserialize("<prefix>No history for <gold><date></gold>.", DaybreakPlugin.PREFIX, unparsed("date", query)));
+                return;
+            }
+
+            var survivors = rows.stream().filter(DayArchive.Row::survived).map(r -> name(r.uuid())).collect(Collectors.joining(", "));
+            var deaths = rows.stream().filter(DayArchive.Row::died).map(r -> name(r.uuid())).collect(Collectors.joining(", "));
+            var crowns = rows.stream().filter(r -> r.crown() >= 0).sorted(Comparator.comparingInt(DayArchive.Row::crown)).map(r -> (r.crown() + 1) + ". " + name(r.uuid())).collect(Collectors.joining(", "));
+            var heads = rows.stream().filter(r -> r.heads() > 0).sorted(Comparator.comparingInt(DayArchive.Row::heads).reversed()).limit(5).map(r -> name(r.uuid()) + " (" + r.heads() + ")").collect(Collectors.joining(", "));
+            sender.sendMessage(miniMessage().deserialize("""
+                    <prefix>History of <gold><date></gold>
+                    <prefix>Survivors: <gold><survivors></gold>
+                    <prefix>Deaths: <gold><deaths></gold>
+                    <prefix>Crowns: <gold><crowns></gold>
+                    <prefix>Heads: <gold><heads></gold>""", DaybreakPlugin.PREFIX, unparsed("date", query), unparsed("survivors", survivors), unparsed("deaths", deaths), unparsed("crowns", crowns), unparsed("heads", heads)));
+            return;
+        }
+
+        // show all days of a player
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(query);
+        } catch (IllegalArgumentException e) {
+            var player = Bukkit.getOfflinePlayerIfCached(query);
+            uuid = player == null ? null : player.getUniqueId();
+        }
+        var rows = uuid == null ? List.<DayArchive.Row>of() : this.plugin.history.player(uuid);
+        if (rows.isEmpty()) {
+            sender.sendMessage(miniMessage().deserialize("<prefix>No history for <gold><player></gold>.", DaybreakPlugin.PREFIX, unparsed("player", query)));
+            return;
+        }
+
+        var survived = rows.stream().filter(DayArchive.Row::survived).count();
+        var heads = rows.stream().mapToInt(DayArchive.Row::heads).sum();
+        var days = rows.reversed().stream().limit(10).map(r -> "<prefix>" + r.date() + ": " + (r.survived() ? "<green>survived</green>" : r.died() ? "<red>died</red>" : "<gray>played</gray>")
+                + (r.heads() > 0 ? ", " + r.heads() + " head" + (r.heads() == 1 ? "" : "s") : "")
+                + (r.crown() >= 0 ? ", crown " + (r.crown() + 1) : "")).collect(Collectors.joining("\n"));
+        sender.sendMessage(miniMessage().deserialize("<prefix>History of <gold><player></gold>: survived <gold>" + survived + "</gold> of <gold>" + rows.size() + "</gold> days, <gold>" + heads + "</gold> heads\n" + days,
+                DaybreakPlugin.PREFIX, unparsed("player", query)));
+    }
+
+    /**
+     * Get the name of a player known to the server.
+     * @param uuid The unique id of the player.
+     * @return The name or the unique id if the player is unknown.
+     */
+    private static String name(UUID uuid) {
+        var name = Bukkit.getOfflinePlayer(uuid).getName();
+        return name == null ? uuid.toString() : name;
     }
 }
@@ -9,12 +9,10 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.UUID;
 
 import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
 
@@ -42,8 +40,9 @@ public class HeadsCommand extends Command {
     public boolean execute(@NotNull CommandSender sender, @NotNull String commandLabel, @NotNull String[] args) {
         if (sender instanceof Player p) {
             // grab player head collection
-            var heads = (Map<UUID, Integer>) p.getPersistentDataContainer().getOrDefault(DaybreakPlugin.HEADS_KEY, DaybreakPlugin.HEADS_TYPE, new HashMap<UUID, Integer>());
-            var total = heads.values().stream().mapToInt(i -> i).sum();
+            var session = JavaPlugin.getPlugin(DaybreakPlugin.class).sessions.get(p);
+            var heads = session.getHeads();
+            var total = session.getHeadTotal();
 
             if (total == 0) {
                 sender.sendMessage(miniMessage().deserialize("<prefix><red>You don't have any heads yet!", DaybreakPlugin.PREFIX));
@@ -2,10 +2,13 @@ package gay.pancake.daybreak.commands;
 
 import gay.pancake.daybreak.DaybreakPlugin;
 import lombok.SneakyThrows;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static gay.pancake.daybreak.webhook.WebhookUtil.getPlayerName;
@@ -25,7 +28,7 @@ public class LeaderboardCommand extends Command {
      * Initialize leaderboard command.
      */
     public LeaderboardCommand(DaybreakPlugin plugin) {
-        super("leaderboard", "Shows the leaderboard", "/leaderboard", List.of("lb"));
+        super("leaderboard", "Shows the leaderboard", "/leaderboard [stat]", List.of("lb"));
         this.plugin = plugin;
     }
 
@@ -38,6 +41,27 @@ public class LeaderboardCommand extends Command {
      */
     @Override @SneakyThrows
     public boolean execute(@NotNull CommandSender sender, @NotNull String commandLabel, @NotNull String[] args) {
+        // show leaderboard of an indexed statistic
+        if (args.length == 1) {
+            var top = this.plugin.stats.top(args[0], 10);
+            if (top == null) {
+                sender.sendMessage(miniMessage().deserialize("<prefix>Unknown statistic. Available: <gold><stats></gold>", DaybreakPlugin.PREFIX, unparsed("stats", String.join(", ", this.plugin.stats.getNames()))));
+                return true;
+            }
+
+            var lines = new StringBuilder("<prefix><bold>Daybreak Leaderboard</bold> <gray>(" + args[0] + ")</gray>");
+            var resolvers = new ArrayList<TagResolver>();
+            resolvers.add(DaybreakPlugin.PREFIX);
+            for (var i = 0; i < top.size(); i++) {
+                var name = Bukkit.getOfflinePlayer(top.get(i).getKey()).getName();
+                lines.append("\n<prefix><gold>").append(i + 1).append(". <name").append(i).append("></gold> <gray>").append(format(args[0], top.get(i).getValue())).append("</gray>");
+                resolvers.add(unparsed("name" + i, name == null ? top.get(i).getKey().toString() : name));
+            }
+
+            sender.sendMessage(miniMessage().deserialize(lines.toString(), resolvers.toArray(TagResolver[]::new)));
+            return true;
+        }
+
         var crowns = this.plugin.crownListener.crowns;
 
         sender.sendMessage(miniMessage().deserialize("""
@@ -53,4 +77,31 @@ public class LeaderboardCommand extends Command {
         return true;
     }
 
+    /**
+     * Tab complete leaderboard command.
+     * @param sender Source object which is executing this command
+     * @param alias the alias being used
+     * @param args All arguments passed to the command, split via ' '
+     * @return A list of possible completions for the final argument, or null to default to the command executor
+     * @throws IllegalArgumentException Thrown when sender, alias, or args is null
+     */
+    @Override
+    public @NotNull List<String> tabComplete(@NotNull CommandSender sender, @NotNull String alias, @NotNull String[] args) throws IllegalArgumentException {
+        return args.length == 1 ? this.plugin.stats.getNames() : List.of();
+    }
+
+    /**
+     * Format the value of a statistic, showing times in hours and minutes.
+     * @param stat The name of the statistic.
+     * @param value The value in ticks for times.
+     * @return The formatted value.
+     */
+    private static String format(String stat, long value) {
+        if (!stat.endsWith("time"))
+            return String.valueOf(value);
+
+        var minutes = value / 20 / 60;
+        return minutes / 60 + "h " + minutes % 60 + "m";
+    }
+
 }
@@ -19,6 +19,7 @@ import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
+import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.util.Vector;
 
 import java.net.URI;
@@ -108,15 +109,32 @@ public class Crown {
         Bukkit.broadcast(miniMessage().deserialize("<prefix><gold><player></gold> <red>dropped the</red> <crown><red>!</red>", DaybreakPlugin.PREFIX, unparsed("player", player.getName()), component("crown", Component.text(this.type.getName()).color(this.type.getColor()))));
     }
 
+    /**
+     * Reset crown after the world has been swapped
+     * @param keepHolder Whether the holder survived and keeps the crown
+     */
+    public void reset(boolean keepHolder) {
+        this.entity = null; // removed together with the old world
+        this.bossBar.setVisible(false);
+        if (!keepHolder)
+            this.holder = null;
+
+        if (this.holder == null)
+            this.spawnCrownEntity(null);
+    }
+
     /**
      * Spawn the crown item entity
      * @param pos The position to spawn the crown at or null to spawn at random position within border
      */
     @SneakyThrows
     private void spawnCrownEntity(Location pos) {
-        var world = Bukkit.getWorlds().getFirst();
+        var plugin = JavaPlugin.getPlugin(DaybreakPlugin.class);
+        var world = plugin.getWorld();
 
-        // get random position within border if not specified
+        // get random position within border if not specified, preferring the surface cache
+        if (pos == null && plugin.surfaceCache != null)
+            pos = plugin.surfaceCache.findSafeSurface(256);
         if (pos == null) {
             int x, y, z;
             Material b;
@@ -0,0 +1,425 @@
+package gay.pancake.daybreak.events;
+
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Event sink keeping the statistics of the current day up to date, finishing them into a digest at every reset.
+ * The state is written after every batch of events together with the sequence it covers, so no event is counted twice after a crash.
+ * @author Pancake
+ */
+public class DailyDigest implements EventSink {
+
+    /** File the digest is stored in */
+    public static final Path DIGEST_FILE = Path.of("daybreak.digest");
+
+    /** Magic number and version of the file format */
+    private static final int MAGIC = 0x44424447, VERSION = 1;
+
+    /** File the digest is stored in */
+    private final Path file;
+
+    /** Sequence of the next event to be counted */
+    private long sequence;
+    /** Kills per player today */
+    private final Map<UUID, Integer> kills = new HashMap<>();
+    /** Deaths per damage cause id today */
+    private final Map<Integer, Integer> causes = new HashMap<>();
+    /** Players that died today in order of death */
+    private final Set<UUID> deaths = new LinkedHashSet<>();
+    /** Players that survived today in order of survival */
+    private final Set<UUID> survivors = new LinkedHashSet<>();
+    /** Milliseconds the crowns were held per player today */
+    private final Map<UUID, Long> crownTime = new HashMap<>();
+    /** Holders of the crowns by crown type */
+    private final UUID[] holders = new UUID[3];
+    /** Time the crowns were last taken or the day started by crown type */
+    private final long[] since = new long[3];
+    /** Players online after the last join or quit */
+    private int online;
+    /** Most players online at once today */
+    private int peak;
+    /** Days survived in a row per player, counting finished days */
+    private final Map<UUID, Integer> streaks = new HashMap<>();
+    /** Whether the state changed since it was last written */
+    private boolean dirty;
+
+    /** Digest of the last finished day */
+    private volatile Day last = Day.EMPTY;
+
+    /**
+     * Load the digest from disk.
+     * @param file The file the digest is stored in.
+     * @param logger Logger to report unreadable digests to.
+     */
+    public DailyDigest(Path file, ComponentLogger logger) {
+        this.file = file;
+        if (!Files.exists(file))
+            return;
+
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            this.load(in);
+        } catch (IOException e) {
+            logger.error("Unable to read daily digest, starting over", e);
+            this.clear();
+        }
+    }
+
+    /**
+     * Get the digest of the last finished day.
+     * @return The digest.
+     */
+    public Day getLast() {
+        return this.last;
+    }
+
+    @Override
+    public void accept(GameEvent event) {
+        // skip events counted before a crash
+        if (event.sequence() < this.sequence)
+            return;
+
+        this.sequence = event.sequence() + 1;
+        this.dirty = true;
+        var subject = event.subject();
+        switch (event.type()) {
+            case KILL -> this.kills.merge(subject, 1, Integer::sum);
+            case DEATH -> {
+                this.deaths.add(subject);
+                this.survivors.remove(subject);
+                this.causes.merge(event.arg(), 1, Integer::sum);
+            }
+            case SURVIVOR -> this.survivors.add(subject);
+            case CROWN_PICKUP -> this.take(event.arg(), subject, event.time());
+            case CROWN_TRANSFER -> {
+                this.release(event.arg(), event.time());
+                this.take(event.arg(), subject, event.time());
+            }
+            case CROWN_DROP -> this.release(event.arg(), event.time());
+            case JOIN, QUIT -> {
+                this.online = event.value();
+                this.peak = Math.max(this.peak, this.online);
+            }
+            case RESET -> this.finish(event.time());
+            default -> {}
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!this.dirty)
+            return;
+
+        var temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            this.save(out);
+        }
+        Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.dirty = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.flush();
+    }
+
+    /**
+     * Give a crown to a player.
+     * @param type The crown type.
+     * @param holder The new holder.
+     * @param time The time the crown was taken.
+     */
+    private void take(int type, UUID holder, long time) {
+        if (type >= this.holders.length)
+            return;
+
+        this.holders[type] = holder;
+        this.since[type] = time;
+    }
+
+    /**
+     * Take a crown from its holder, adding the held time to their total.
+     * @param type The crown type.
+     * @param time The time the crown was lost.
+     */
+    private void release(int type, long time) {
+        if (type >= this.holders.length || this.holders[type] == null)
+            return;
+
+        this.crownTime.merge(this.holders[type], Math.max(0, time - this.since[type]), Long::sum);
+        this.holders[type] = null;
+    }
+
+    /**
+     * Finish the current day into the digest and start the next one.
+     * @param time The time of the reset.
+     */
+    private void finish(long time) {
+        // count crowns held until the reset, only survivors keep their crown into the next day
+        var holders = Arrays.asList(this.holders.clone());
+        for (var type = 0; type < this.holders.length; type++) {
+            var holder = this.holders[type];
+            this.release(type, time);
+            if (holder != null && this.survivors.contains(holder))
+                this.take(type, holder, time);
+        }
+
+        // extend the streaks of survivors and end all others
+        this.streaks.keySet().retainAll(this.survivors);
+        UUID longest = null;
+        var longestStreak = 0;
+        for (var uuid : this.survivors) {
+            var streak = this.streaks.merge(uuid, 1, Integer::sum);
+            if (streak > longestStreak) {
+                longest = uuid;
+                longestStreak = streak;
+            }
+        }
+
+        this.last = new Day(time, Map.copyOf(this.kills), Map.copyOf(this.causes), List.copyOf(this.deaths), List.copyOf(this.survivors), Map.copyOf(this.crownTime), holders, longest, longestStreak, this.peak);
+        this.kills.clear();
+        this.causes.clear();
+        this.deaths.clear();
+        this.survivors.clear();
+        this.crownTime.clear();
+        this.peak = this.online;
+    }
+
+    /**
+     * Write the state of the digest.
+     * @param out The output stream.
+     * @throws IOException If the state could not be written.
+     */
+    private void save(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(this.sequence);
+
+        // current day
+        writeCounts(out, this.kills);
+        out.writeInt(this.causes.size());
+        for (var entry : this.causes.entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        writeUuids(out, this.deaths);
+        writeUuids(out, this.survivors);
+        writeTimes(out, this.crownTime);
+        for (var type = 0; type < this.holders.length; type++) {
+            writeUuid(out, this.holders[type]);
+            out.writeLong(this.since[type]);
+        }
+        out.writeInt(this.online);
+        out.writeInt(this.peak);
+        writeCounts(out, this.streaks);
+
+        // last finished day
+        var day = this.last;
+        out.writeLong(day.end());
+        writeCounts(out, day.kills());
+        out.writeInt(day.causes().size());
+        for (var entry : day.causes().entrySet()) {
+            out.writeInt(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        writeUuids(out, day.deaths());
+        writeUuids(out, day.survivors());
+        writeTimes(out, day.crownTime());
+        for (var holder : day.crownHolders())
+            writeUuid(out, holder);
+        writeUuid(out, day.longestSurvivor());
+        out.writeInt(day.longestStreak());
+        out.writeInt(day.peak());
+    }
+
+    /**
+     * Read the state of the digest.
+     * @param in The input stream.
+     * @throws IOException If the state could not be read.
+     */
+    private void load(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            throw new IOException("Unknown digest format");
+
+        this.sequence = in.readLong();
+
+        // current day
+        readCounts(in, this.kills);
+        for (var i = in.readInt(); i > 0; i--)
+            this.causes.put(in.readInt(), in.readInt());
+        readUuids(in, this.deaths);
+        readUuids(in, this.survivors);
+        readTimes(in, this.crownTime);
+        for (var type = 0; type < this.holders.length; type++) {
+            this.holders[type] = readUuid(in);
+            this.since[type] = in.readLong();
+        }
+        this.online = in.readInt();
+        this.peak = in.readInt();
+        readCounts(in, this.streaks);
+
+        // last finished day
+        var end = in.readLong();
+        var kills = readCounts(in, new HashMap<>());
+        var causes = new HashMap<Integer, Integer>();
+        for (var i = in.readInt(); i > 0; i--)
+            causes.put(in.readInt(), in.readInt());
+        var deaths = readUuids(in, new ArrayList<>());
+        var survivors = readUuids(in, new ArrayList<>());
+        var crownTime = readTimes(in, new HashMap<>());
+        var holders = new UUID[this.holders.length];
+        for (var type = 0; type < holders.length; type++)
+            holders[type] = readUuid(in);
+        this.last = new Day(end, kills, causes, deaths, survivors, crownTime, Arrays.asList(holders), readUuid(in), in.readInt(), in.readInt());
+    }
+
+    /**
+     * Discard a partially read state.
+     */
+    private void clear() {
+        this.sequence = 0;
+        this.kills.clear();
+        this.causes.clear();
+        this.deaths.clear();
+        this.survivors.clear();
+        this.crownTime.clear();
+        Arrays.fill(this.holders, null);
+        Arrays.fill(this.since, 0);
+        this.online = 0;
+        this.peak = 0;
+        this.streaks.clear();
+        this.last = Day.EMPTY;
+    }
+
+    /**
+     * Write a unique id, writing zero if absent.
+     * @param out The output stream.
+     * @param uuid The unique id or null.
+     * @throws IOException If the unique id could not be written.
+     */
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid == null ? 0 : uuid.getMostSignificantBits());
+        out.writeLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Read a unique id, treating zero as absent.
+     * @param in The input stream.
+     * @return The unique id or null.
+     * @throws IOException If the unique id could not be read.
+     */
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        var most = in.readLong();
+        var least = in.readLong();
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    /**
+     * Write a collection of unique ids.
+     * @param out The output stream.
+     * @param uuids The unique ids.
+     * @throws IOException If the unique ids could not be written.
+     */
+    private static void writeUuids(DataOutputStream out, Collection<UUID> uuids) throws IOException {
+        out.writeInt(uuids.size());
+        for (var uuid : uuids)
+            writeUuid(out, uuid);
+    }
+
+    /**
+     * Read unique ids into a collection.
+     * @param in The input stream.
+     * @param uuids The collection to add the unique ids to.
+     * @return The collection.
+     * @throws IOException If the unique ids could not be read.
+     */
+    private static <T extends Collection<UUID>> T readUuids(DataInputStream in, T uuids) throws IOException {
+        for (var i = in.readInt(); i > 0; i--)
+            uuids.add(readUuid(in));
+        return uuids;
+    }
+
+    /**
+     * Write counts per player.
+     * @param out The output stream.
+     * @param counts The counts.
+     * @throws IOException If the counts could not be written.
+     */
+    private static void writeCounts(DataOutputStream out, Map<UUID, Integer> counts) throws IOException {
+        out.writeInt(counts.size());
+        for (var entry : counts.entrySet()) {
+            writeUuid(out, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+
+    /**
+     * Read counts per player into a map.
+     * @param in The input stream.
+     * @param counts The map to add the counts to.
+     * @return The map.
+     * @throws IOException If the counts could not be read.
+     */
+    private static Map<UUID, Integer> readCounts(DataInputStream in, Map<UUID, Integer> counts) throws IOException {
+        for (var i = in.readInt(); i > 0; i--)
+            counts.put(readUuid(in), in.readInt());
+        return counts;
+    }
+
+    /**
+     * Write times per player.
+     * @param out The output stream.
+     * @param times The times.
+     * @throws IOException If the times could not be written.
+     */
+    private static void writeTimes(DataOutputStream out, Map<UUID, Long> times) throws IOException {
+        out.writeInt(times.size());
+        for (var entry : times.entrySet()) {
+            writeUuid(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /**
+     * Read times per player into a map.
+     * @param in The input stream.
+     * @param times The map to add the times to.
+     * @return The map.
+     * @throws IOException If the times could not be read.
+     */
+    private static Map<UUID, Long> readTimes(DataInputStream in, Map<UUID, Long> times) throws IOException {
+        for (var i = in.readInt(); i > 0; i--)
+            times.put(readUuid(in), in.readLong());
+        return times;
+    }
+
+    /**
+     * Finished statistics of a day.
+     * @param end The time the day ended in milliseconds or 0 if no day has ended yet.
+     * @param kills Kills per player.
+     * @param causes Deaths per damage cause id.
+     * @param deaths Players that died in order of death.
+     * @param survivors Players that survived in order of survival.
+     * @param crownTime Milliseconds the crowns were held per player.
+     * @param crownHolders Holders of the crowns at the end of the day by crown type, null if unclaimed.
+     * @param longestSurvivor The survivor with the longest streak or null if nobody survived.
+     * @param longestStreak Days the longest survivor has survived in a row.
+     * @param peak Most players online at once.
+     */
+    public record Day(long end, Map<UUID, Integer> kills, Map<Integer, Integer> causes, List<UUID> deaths, List<UUID> survivors, Map<UUID, Long> crownTime, List<UUID> crownHolders, UUID longestSurvivor, int longestStreak, int peak) {
+
+        /** Digest of a day that has not been recorded */
+        public static final Day EMPTY = new Day(0, Map.of(), Map.of(), List.of(), List.of(), Map.of(), Arrays.asList(new UUID[3]), null, 0, 0);
+
+    }
+
+}
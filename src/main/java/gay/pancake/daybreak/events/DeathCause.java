@@ -0,0 +1,51 @@
+package gay.pancake.daybreak.events;
+
+import org.bukkit.event.entity.EntityDamageEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ids of damage causes stored with death events, independent of the order of the damage causes of the server.
+ * Ids are stored on disk and must never change, new damage causes are appended to the end.
+ * @author Pancake
+ */
+public class DeathCause {
+
+    /** Id of a damage cause missing from the table */
+    public static final int UNKNOWN = 0;
+
+    /** Names of the damage causes by id */
+    private static final String[] NAMES = {
+            null, "KILL", "WORLD_BORDER", "CONTACT", "ENTITY_ATTACK", "ENTITY_SWEEP_ATTACK", "PROJECTILE", "SUFFOCATION", "FALL",
+            "FIRE", "FIRE_TICK", "MELTING", "LAVA", "DROWNING", "BLOCK_EXPLOSION", "ENTITY_EXPLOSION", "VOID", "LIGHTNING",
+            "SUICIDE", "STARVATION", "POISON", "MAGIC", "WITHER", "FALLING_BLOCK", "THORNS", "DRAGON_BREATH", "CUSTOM",
+            "FLY_INTO_WALL", "HOT_FLOOR", "CRAMMING", "DRYOUT", "FREEZE", "SONIC_BOOM"
+    };
+    /** Ids of the damage causes by name */
+    private static final Map<String, Integer> IDS = new HashMap<>();
+
+    static {
+        for (var id = 1; id < NAMES.length; id++)
+            IDS.put(NAMES[id], id);
+    }
+
+    /**
+     * Get the id of a damage cause.
+     * @param cause The damage cause.
+     * @return The id or UNKNOWN if the damage cause is missing from the table.
+     */
+    public static int id(EntityDamageEvent.DamageCause cause) {
+        return IDS.getOrDefault(cause.name(), UNKNOWN);
+    }
+
+    /**
+     * Get the readable name of a damage cause by its id.
+     * @param id The id of the damage cause.
+     * @return The lowercase name or "unknown" if the id is not known.
+     */
+    public static String name(int id) {
+        return id > 0 && id < NAMES.length ? NAMES[id].toLowerCase() : "unknown";
+    }
+
+}
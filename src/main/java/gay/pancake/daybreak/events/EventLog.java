@@ -0,0 +1,400 @@
+package gay.pancake.daybreak.events;
+
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only log of gameplay events, stored as fixed size records in memory-mapped segment files.
+ * Appending writes straight into the mapped segment without allocating, a reader thread feeds the records to the sinks.
+ * Records survive crashes of the server through the page cache, they are only forced to disk when the log is closed.
+ * Segments are deleted once every sink has read them, keeping a configured number of the newest read segments.
+ * @author Pancake
+ */
+public class EventLog {
+
+    /** Folder the segments are stored in */
+    public static final Path EVENTS_DIR = Path.of("events");
+
+    /** Magic number and version of the segment format */
+    private static final int MAGIC = 0x4442454C, VERSION = 1;
+    /** Size of the segment header: magic, version and sequence of the first record */
+    private static final int HEADER_SIZE = 16;
+    /** Size of a record: time, type, arg, padding, value, subject and object */
+    private static final int RECORD_SIZE = 48;
+    /** Number of records per segment */
+    private static final int SEGMENT_RECORDS = 1 << 16;
+    /** Milliseconds the reader waits for new records */
+    private static final long READ_INTERVAL = 500;
+
+    /** Folder the segments are stored in */
+    private final Path dir;
+    /** Logger to report failures to */
+    private final ComponentLogger logger;
+    /** Sinks fed by the reader */
+    private final List<EventSink> sinks = new CopyOnWriteArrayList<>();
+    /** File storing the sequence of the next record to be read */
+    private final Path cursorFile;
+    /** Number of read segments kept */
+    private final int retained;
+
+    /** Mapped segment records are appended to or null if closed */
+    private MappedByteBuffer segment;
+    /** Number of records in the current segment */
+    private int position;
+    /** Sequence of the next record to be appended */
+    private volatile long sequence;
+
+    /** Mapped segment records are read from */
+    private MappedByteBuffer readSegment;
+    /** Sequence of the first record of the read segment or -1 if none is mapped */
+    private long readStart = -1;
+    /** Sequence of the next record to be read */
+    private long cursor;
+    /** Reader thread or null if not started */
+    private Thread reader;
+    /** Lock held while records are fed to the sinks */
+    private final Object readLock = new Object();
+
+    /**
+     * Open the event log, continuing after the last record written.
+     * @param dir Folder the segments are stored in.
+     * @param retained Number of segments kept after every sink has read them.
+     * @param logger Logger to report failures to.
+     * @throws IOException If the log could not be opened.
+     */
+    public EventLog(Path dir, int retained, ComponentLogger logger) throws IOException {
+        this.dir = dir;
+        this.retained = Math.max(0, retained);
+        this.logger = logger;
+        this.cursorFile = dir.resolve("cursor");
+        Files.createDirectories(dir);
+
+        // find the last segment and the first free record in it
+        long last = 0;
+        try (var files = Files.list(dir)) {
+            for (var file : files.toList()) {
+                var start = start(file);
+                if (start > last)
+                    last = start;
+            }
+        }
+        this.segment = this.map(last, true);
+        while (this.position < SEGMENT_RECORDS && this.segment.get(HEADER_SIZE + this.position * RECORD_SIZE + 8) != 0)
+            this.position++;
+        this.sequence = last + this.position;
+
+        // continue reading where the reader stopped, the sinks skip records they have seen if the cursor is lost
+        try {
+            this.cursor = Files.exists(this.cursorFile) ? Long.parseLong(Files.readString(this.cursorFile).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            logger.error("Unable to read event log cursor, reading from the start", e);
+            this.cursor = 0;
+        }
+        this.cursor = Math.min(this.cursor, this.sequence);
+        this.prune();
+    }
+
+    /**
+     * Add a sink fed with every record from the cursor onwards.
+     * @param sink The sink.
+     */
+    public void addSink(EventSink sink) {
+        this.sinks.add(sink);
+    }
+
+    /**
+     * Append an event about a player.
+     * @param type The type of the event.
+     * @param subject The player the event is about.
+     */
+    public void append(EventType type, UUID subject) {
+        this.append(type, 0, 0, subject, null);
+    }
+
+    /**
+     * Append an event between two players.
+     * @param type The type of the event.
+     * @param arg The small argument of the event.
+     * @param subject The player the event is about.
+     * @param object The other player involved or null.
+     */
+    public void append(EventType type, int arg, UUID subject, UUID object) {
+        this.append(type, arg, 0, subject, object);
+    }
+
+    /**
+     * Append an event to the current segment, rotating to a new segment once it is full.
+     * @param type The type of the event.
+     * @param arg The small argument of the event.
+     * @param value The value of the event.
+     * @param subject The player the event is about or null.
+     * @param object The other player involved or null.
+     */
+    public synchronized void append(EventType type, int arg, int value, UUID subject, UUID object) {
+        if (this.segment == null)
+            return;
+
+        if (this.position == SEGMENT_RECORDS) {
+            try {
+                this.segment = this.map(this.sequence, true);
+            } catch (IOException e) {
+                this.logger.error("Unable to rotate event log, dropping events", e);
+                this.segment = null;
+                return;
+            }
+        }
+
+        // write the type last, marking the record as complete
+        var offset = HEADER_SIZE + this.position * RECORD_SIZE;
+        this.segment.putLong(offset, System.currentTimeMillis());
+        this.segment.put(offset + 9, (byte) arg);
+        this.segment.putInt(offset + 12, value);
+        this.segment.putLong(offset + 16, subject == null ? 0 : subject.getMostSignificantBits());
+        this.segment.putLong(offset + 24, subject == null ? 0 : subject.getLeastSignificantBits());
+        this.segment.putLong(offset + 32, object == null ? 0 : object.getMostSignificantBits());
+        this.segment.putLong(offset + 40, object == null ? 0 : object.getLeastSignificantBits());
+        this.segment.put(offset + 8, type.getId());
+        this.position++;
+        this.sequence++;
+    }
+
+    /**
+     * Feed all records appended so far to the sinks on the calling thread, so that they have seen every earlier event.
+     * @throws IOException If the records could not be read.
+     */
+    public void sync() throws IOException {
+        this.read();
+    }
+
+    /**
+     * Start the thread feeding new records to the sinks.
+     */
+    public synchronized void startReader() {
+        if (this.reader != null)
+            return;
+
+        this.reader = new Thread(this::readLoop, "Daybreak Event Reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Stop the reader, feed the remaining records to the sinks and force the current segment to disk.
+     * @throws IOException If the log could not be closed.
+     */
+    public void close() throws IOException {
+        Thread reader;
+        synchronized (this) {
+            reader = this.reader;
+            this.reader = null;
+            this.notifyAll();
+        }
+
+        if (reader != null) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            if (this.segment != null)
+                this.segment.force();
+            this.segment = null;
+        }
+
+        this.read();
+        for (var sink : this.sinks)
+            sink.close();
+    }
+
+    /**
+     * Read new records until the reader is stopped.
+     */
+    private void readLoop() {
+        while (true) {
+            try {
+                synchronized (this) {
+                    if (this.reader != Thread.currentThread())
+                        return;
+                    if (this.cursor == this.sequence)
+                        this.wait(READ_INTERVAL);
+                }
+
+                this.read();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                this.logger.error("Unable to read event log", e);
+            }
+        }
+    }
+
+    /**
+     * Feed all records appended since the last read to the sinks and store the cursor.
+     * @throws IOException If the records could not be read.
+     */
+    private void read() throws IOException {
+        synchronized (this.readLock) {
+            var end = this.sequence;
+            if (this.cursor >= end)
+                return;
+
+            var from = this.cursor;
+            for (; this.cursor < end; this.cursor++) {
+                var event = this.get(this.cursor);
+                if (event == null)
+                    continue;
+
+                for (var sink : this.sinks) {
+                    try {
+                        sink.accept(event);
+                    } catch (IOException e) {
+                        this.logger.error("Unable to feed event to " + sink.getClass().getSimpleName(), e);
+                    }
+                }
+            }
+
+            for (var sink : this.sinks)
+                sink.flush();
+            this.writeCursor();
+
+            // delete old segments once the cursor has moved into the next segment
+            if (from / SEGMENT_RECORDS != this.cursor / SEGMENT_RECORDS)
+                this.prune();
+        }
+    }
+
+    /**
+     * Delete segments every sink has read, except for the newest retained ones.
+     */
+    private void prune() {
+        try (var files = Files.list(this.dir)) {
+            var read = files.mapToLong(EventLog::start).filter(start -> start >= 0 && start + SEGMENT_RECORDS <= this.cursor).sorted().toArray();
+            for (var i = 0; i < read.length - this.retained; i++)
+                Files.deleteIfExists(this.file(read[i]));
+        } catch (IOException e) {
+            this.logger.warn("Unable to delete old event log segments", e);
+        }
+    }
+
+    /**
+     * Write the cursor to disk, replacing the previous file atomically.
+     * @throws IOException If the cursor could not be written.
+     */
+    private void writeCursor() throws IOException {
+        var temp = this.cursorFile.resolveSibling("cursor.tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(Long.toString(this.cursor).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, this.cursorFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Decode a record of the log.
+     * @param sequence The sequence of the record.
+     * @return The event or null if the record is incomplete or of an unknown type.
+     * @throws IOException If the segment could not be mapped.
+     */
+    private GameEvent get(long sequence) throws IOException {
+        var start = sequence - sequence % SEGMENT_RECORDS;
+        if (start != this.readStart) {
+            if (!Files.exists(this.file(start)))
+                return null;
+
+            this.readSegment = this.map(start, false);
+            this.readStart = start;
+        }
+
+        var offset = HEADER_SIZE + (int) (sequence - start) * RECORD_SIZE;
+        var type = EventType.byId(this.readSegment.get(offset + 8));
+        if (type == null)
+            return null;
+
+        return new GameEvent(sequence, this.readSegment.getLong(offset), type, this.readSegment.get(offset + 9) & 0xFF, this.readSegment.getInt(offset + 12),
+                uuid(this.readSegment.getLong(offset + 16), this.readSegment.getLong(offset + 24)),
+                uuid(this.readSegment.getLong(offset + 32), this.readSegment.getLong(offset + 40)));
+    }
+
+    /**
+     * Map a segment, creating it with a header if it does not exist.
+     * @param start The sequence of the first record of the segment.
+     * @param write Whether the segment is mapped for appending.
+     * @return The mapped segment.
+     * @throws IOException If the segment could not be mapped.
+     */
+    private MappedByteBuffer map(long start, boolean write) throws IOException {
+        var file = this.file(start);
+        var size = HEADER_SIZE + (long) SEGMENT_RECORDS * RECORD_SIZE;
+        if (!write) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, channel.size()));
+            }
+        }
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var fresh = channel.size() == 0;
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (fresh) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(8, start);
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException("Unknown event log segment format: " + file);
+
+            this.position = 0;
+            return buffer;
+        }
+    }
+
+    /**
+     * Get the file of a segment.
+     * @param start The sequence of the first record of the segment.
+     * @return The file of the segment.
+     */
+    private Path file(long start) {
+        return this.dir.resolve(String.format("%016x.seg", start));
+    }
+
+    /**
+     * Get the sequence of the first record of a segment file.
+     * @param file The file.
+     * @return The sequence or -1 if the file is not a segment.
+     */
+    private static long start(Path file) {
+        var name = file.getFileName().toString();
+        if (!name.endsWith(".seg"))
+            return -1;
+
+        try {
+            return Long.parseUnsignedLong(name.substring(0, name.length() - 4), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Decode a unique id, treating zero as absent.
+     * @param most The most significant bits.
+     * @param least The least significant bits.
+     * @return The unique id or null if both halves are zero.
+     */
+    private static UUID uuid(long most, long least) {
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+}
@@ -0,0 +1,30 @@
+package gay.pancake.daybreak.events;
+
+import java.io.IOException;
+
+/**
+ * Consumer of events read back from the event log, called on the reader thread.
+ * @author Pancake
+ */
+public interface EventSink {
+
+    /**
+     * Consume an event.
+     * @param event The event.
+     * @throws IOException If the event could not be consumed.
+     */
+    void accept(GameEvent event) throws IOException;
+
+    /**
+     * Flush consumed events after a batch has been read.
+     * @throws IOException If the events could not be flushed.
+     */
+    default void flush() throws IOException {}
+
+    /**
+     * Close the sink once the event log is closed.
+     * @throws IOException If the sink could not be closed.
+     */
+    default void close() throws IOException {}
+
+}
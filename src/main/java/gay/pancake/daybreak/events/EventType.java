@@ -0,0 +1,61 @@
+package gay.pancake.daybreak.events;
+
+import lombok.Getter;
+
+/**
+ * Types of gameplay events recorded in the event log.
+ * Ids are stored on disk and must never change.
+ * @author Pancake
+ */
+public enum EventType {
+
+    /** A player killed another player, subject is the killer and object the victim */
+    KILL(1),
+    /** A player died, subject is the victim, object the killer if any and arg the id of the damage cause */
+    DEATH(2),
+    /** A player picked up a crown, subject is the player and arg the crown type */
+    CROWN_PICKUP(3),
+    /** A crown was taken by a kill, subject is the new holder, object the previous holder and arg the crown type */
+    CROWN_TRANSFER(4),
+    /** A player dropped a crown, subject is the player and arg the crown type */
+    CROWN_DROP(5),
+    /** A player was marked as survivor, subject is the player */
+    SURVIVOR(6),
+    /** A player logged off in combat, subject is the player */
+    COMBAT_LOG(7),
+    /** The server reset, value is the number of survivors */
+    RESET(8),
+    /** A player joined, subject is the player and value the number of players online */
+    JOIN(9),
+    /** A player left, subject is the player and value the number of players online */
+    QUIT(10);
+
+    /** Event types by id */
+    private static final EventType[] BY_ID = new EventType[16];
+
+    static {
+        for (var type : values())
+            BY_ID[type.id] = type;
+    }
+
+    /** Id of the event type on disk */
+    @Getter private final byte id;
+
+    /**
+     * Initialize event type.
+     * @param id Id of the event type on disk.
+     */
+    EventType(int id) {
+        this.id = (byte) id;
+    }
+
+    /**
+     * Get an event type by its id.
+     * @param id The id of the event type.
+     * @return The event type or null if unknown.
+     */
+    public static EventType byId(int id) {
+        return id > 0 && id < BY_ID.length ? BY_ID[id] : null;
+    }
+
+}
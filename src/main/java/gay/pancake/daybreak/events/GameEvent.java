@@ -0,0 +1,16 @@
+package gay.pancake.daybreak.events;
+
+import java.util.UUID;
+
+/**
+ * Gameplay event read back from the event log.
+ * @param sequence The position of the event in the log.
+ * @param time The time of the event in milliseconds.
+ * @param type The type of the event.
+ * @param arg The small argument of the event, depending on the type.
+ * @param value The value of the event, depending on the type.
+ * @param subject The player the event is about or null.
+ * @param object The other player involved in the event or null.
+ * @author Pancake
+ */
+public record GameEvent(long sequence, long time, EventType type, int arg, int value, UUID subject, UUID object) {}
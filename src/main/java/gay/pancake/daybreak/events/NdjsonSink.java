@@ -0,0 +1,141 @@
+package gay.pancake.daybreak.events;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import gay.pancake.daybreak.crowns.Crown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Event sink appending every event as one json object per line, for analysis outside the server.
+ * Events exported before a crash are skipped by the sequence of the last line, so every event is exported once.
+ * The file is rotated once it grows past a size limit, keeping one rotated file, so the export takes at most twice the limit.
+ * @author Pancake
+ */
+public class NdjsonSink implements EventSink {
+
+    /** Bytes read from the end of the export file to find the last line */
+    private static final int TAIL_SIZE = 4096;
+
+    /** The export file */
+    private final Path file;
+    /** The rotated export file */
+    private final Path rotated;
+    /** Size in bytes above which the export file is rotated */
+    private final long maxSize;
+    /** Writer of the export file */
+    private BufferedWriter writer;
+    /** Size of the export file in bytes */
+    private long size;
+    /** Sequence of the next event to be exported */
+    private long sequence;
+
+    /**
+     * Open the export file for appending, continuing after the last exported event.
+     * @param file The export file.
+     * @param maxSize Size in bytes above which the export file is rotated.
+     * @throws IOException If the file could not be opened.
+     */
+    public NdjsonSink(Path file, long maxSize) throws IOException {
+        this.file = file;
+        this.rotated = file.resolveSibling(file.getFileName() + ".1");
+        this.maxSize = maxSize;
+        this.sequence = Math.max(Files.exists(this.rotated) ? lastSequence(this.rotated) : -1, Files.exists(file) ? lastSequence(file) : -1) + 1;
+        this.size = Files.exists(file) ? Files.size(file) : 0;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void accept(GameEvent event) throws IOException {
+        // skip events exported before a crash
+        if (event.sequence() < this.sequence)
+            return;
+
+        this.sequence = event.sequence() + 1;
+        var json = new JsonObject();
+        json.addProperty("seq", event.sequence());
+        json.addProperty("time", Instant.ofEpochMilli(event.time()).toString());
+        json.addProperty("type", event.type().name().toLowerCase());
+        if (event.subject() != null)
+            json.addProperty("subject", event.subject().toString());
+        if (event.object() != null)
+            json.addProperty("object", event.object().toString());
+
+        // name the argument where its meaning is known
+        switch (event.type()) {
+            case DEATH -> json.addProperty("cause", DeathCause.name(event.arg()));
+            case CROWN_PICKUP, CROWN_TRANSFER, CROWN_DROP -> json.addProperty("crown", event.arg() < Crown.CrownType.values().length ? Crown.CrownType.values()[event.arg()].name().toLowerCase() : String.valueOf(event.arg()));
+            case RESET -> json.addProperty("survivors", event.value());
+            default -> {}
+        }
+
+        var line = json.toString();
+        this.writer.write(line);
+        this.writer.newLine();
+        this.size += line.length() + 1;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+        if (this.size < this.maxSize)
+            return;
+
+        // rotate the export file, replacing the previously rotated one
+        this.writer.close();
+        Files.move(this.file, this.rotated, StandardCopyOption.REPLACE_EXISTING);
+        this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.size = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+    /**
+     * Drop a line torn by a crash from the end of the export file and read the sequence of the last complete line.
+     * @param file The export file.
+     * @return The sequence of the last exported event or -1 if unknown.
+     * @throws IOException If the file could not be read.
+     */
+    private static long lastSequence(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var size = channel.size();
+            var tail = new byte[(int) Math.min(size, TAIL_SIZE)];
+            channel.read(ByteBuffer.wrap(tail), size - tail.length);
+
+            // cut the file after the last line break
+            var end = tail.length;
+            while (end > 0 && tail[end - 1] != '\n')
+                end--;
+            if (end == 0 && tail.length < size)
+                return -1;
+            if (end < tail.length)
+                channel.truncate(size - tail.length + end);
+
+            // parse the last complete line
+            var start = end - 1;
+            while (start > 0 && tail[start - 1] != '\n')
+                start--;
+            if (start < 0)
+                return -1;
+
+            try {
+                return JsonParser.parseString(new String(tail, start, end - 1 - start, StandardCharsets.UTF_8)).getAsJsonObject().get("seq").getAsLong();
+            } catch (RuntimeException e) {
+                return -1;
+            }
+        }
+    }
+
+}
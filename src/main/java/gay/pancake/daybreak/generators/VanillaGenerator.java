@@ -6,6 +6,7 @@ import org.bukkit.generator.ChunkGenerator;
 import org.bukkit.generator.WorldInfo;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Random;
 
 /**
@@ -14,6 +15,61 @@ import java.util.Random;
  */
 public class VanillaGenerator extends ChunkGenerator {
 
+    /** Axis classes of a chunk coordinate */
+    private static final int OUTSIDE = 0, INSIDE = 1, LOW_EDGE = 2, HIGH_EDGE = 3;
+
+    /** Barrier regions (x1, z1, x2, z2) by combined axis class of a chunk */
+    private static final int[][][] TEMPLATES = new int[16][][];
+
+    static {
+        for (var xClass = 0; xClass < 4; xClass++) {
+            for (var zClass = 0; zClass < 4; zClass++) {
+                var regions = new ArrayList<int[]>();
+
+                // barriers are only placed in the ring directly around the border
+                if (xClass != OUTSIDE && zClass != OUTSIDE) {
+                    if (xClass == HIGH_EDGE)
+                        regions.add(new int[] { 0, 0, 1, 16 });
+                    if (zClass == HIGH_EDGE)
+                        regions.add(new int[] { 0, 0, 16, 1 });
+                    if (xClass == LOW_EDGE)
+                        regions.add(new int[] { 15, 0, 16, 16 });
+                    if (zClass == LOW_EDGE)
+                        regions.add(new int[] { 0, 15, 16, 16 });
+                }
+
+                TEMPLATES[xClass << 2 | zClass] = regions.toArray(int[][]::new);
+            }
+        }
+    }
+
+    /** Radius of the worldborder in chunks */
+    private final int radius;
+    /** Axis classes of chunk coordinates from -radius-1 to radius */
+    private final byte[] axis;
+
+    /**
+     * Initialize vanilla generator, classifying chunk coordinates by the current border radius.
+     */
+    public VanillaGenerator() {
+        this.radius = DaybreakPlugin.BORDER_RADIUS / 16;
+        this.axis = new byte[this.radius * 2 + 2];
+        for (var i = 0; i < this.axis.length; i++)
+            this.axis[i] = INSIDE;
+        this.axis[0] = LOW_EDGE;
+        this.axis[this.axis.length - 1] = HIGH_EDGE;
+    }
+
+    /**
+     * Classify a chunk coordinate.
+     * @param c Chunk coordinate
+     * @return The axis class of the coordinate.
+     */
+    private int classify(int c) {
+        var index = c + this.radius + 1;
+        return index < 0 || index >= this.axis.length ? OUTSIDE : this.axis[index];
+    }
+
     /**
      * Check if chunk is in worldborder.
      * @param x Chunk X
@@ -21,8 +77,7 @@ public class VanillaGenerator extends ChunkGenerator {
      * @return Whether chunk is in worldborder.
      */
     public boolean isInWorldborder(int x, int z) {
-        var radius = DaybreakPlugin.BORDER_RADIUS / 16;
-        return x < radius && x >= -radius && z < radius && z >= -radius;
+        return this.classify(x) == INSIDE && this.classify(z) == INSIDE;
     }
 
     /**
@@ -35,23 +90,9 @@ public class VanillaGenerator extends ChunkGenerator {
      */
     @Override
     public void generateNoise(@NotNull WorldInfo worldInfo, @NotNull Random random, int chunkX, int chunkZ, @NotNull ChunkData chunkData) {
-        super.generateNoise(worldInfo, random, chunkX, chunkZ, chunkData);
-
-        var radius = DaybreakPlugin.BORDER_RADIUS / 16;
-
-        if (chunkX < radius+1 && chunkX >= -radius-1 && chunkZ < radius+1 && chunkZ >= -radius-1) {
-            if (chunkX == radius)
-                chunkData.setRegion(0, -64, 0, 1, 321, 16, Material.BARRIER);
-
-            if (chunkZ == radius)
-                chunkData.setRegion(0, -64, 0, 16, 321, 1, Material.BARRIER);
-
-            if (chunkX == -radius-1)
-                chunkData.setRegion(15, -64, 0, 16, 321, 16, Material.BARRIER);
-
-            if (chunkZ == -radius-1)
-                chunkData.setRegion(0, -64, 15, 16, 321, 16, Material.BARRIER);
-        }
+        // chunks inside and far outside the border have no barriers
+        for (var region : TEMPLATES[this.classify(chunkX) << 2 | this.classify(chunkZ)])
+            chunkData.setRegion(region[0], -64, region[1], region[2], 321, region[3], Material.BARRIER);
     }
 
     @Override
@@ -0,0 +1,46 @@
+package gay.pancake.daybreak.generators;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.WorldInfo;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Random;
+
+/**
+ * Void generator with a small enclosed barrier cell, used to hold players during a hot reset.
+ * @author Pancake
+ */
+public class VoidGenerator extends ChunkGenerator {
+
+    /**
+     * Generate the barrier cell in the center of chunk 0, 0.
+     * @param worldInfo The world info of the world this chunk will be used for
+     * @param random The random generator to use
+     * @param chunkX The X-coordinate of the chunk
+     * @param chunkZ The Z-coordinate of the chunk
+     * @param chunkData To modify
+     */
+    @Override
+    public void generateNoise(@NotNull WorldInfo worldInfo, @NotNull Random random, int chunkX, int chunkZ, @NotNull ChunkData chunkData) {
+        if (chunkX != 0 || chunkZ != 0)
+            return;
+
+        chunkData.setRegion(6, 64, 6, 11, 68, 11, Material.BARRIER);
+        chunkData.setRegion(7, 65, 7, 10, 67, 10, Material.AIR);
+    }
+
+    /**
+     * Get the spawn location inside the barrier cell.
+     * @param world The world to locate a spawn point for
+     * @param random Random generator to use in the calculation
+     * @return Location inside the barrier cell
+     */
+    @Override
+    public Location getFixedSpawnLocation(@NotNull World world, @NotNull Random random) {
+        return new Location(world, 8.5, 65, 8.5);
+    }
+
+}
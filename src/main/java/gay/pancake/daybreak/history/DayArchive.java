@@ -0,0 +1,345 @@
+package gay.pancake.daybreak.history;
+
+import gay.pancake.daybreak.events.DailyDigest;
+import gay.pancake.daybreak.events.EventSink;
+import gay.pancake.daybreak.events.EventType;
+import gay.pancake.daybreak.events.GameEvent;
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Archive of finished days, one columnar file per day and an index of the rows of every player.
+ * Each day file stores one row per player in columns, so a single field of a player is read with one positional read at an offset known from the index.
+ * @author Pancake
+ */
+public class DayArchive implements EventSink {
+
+    /** Folder the archive is stored in */
+    public static final Path HISTORY_DIR = Path.of("history");
+
+    /** Magic number and version of the day files */
+    private static final int DAY_MAGIC = 0x44424459, VERSION = 1;
+    /** Magic number of the index file */
+    private static final int INDEX_MAGIC = 0x44424958;
+    /** Size of the day file header: magic, version, epoch day, rows, end time and peak players */
+    private static final int HEADER_SIZE = 28;
+    /** Row flags */
+    public static final int SURVIVED = 1, DIED = 2, CROWN = 4;
+    /** Flags of all crown types */
+    private static final int CROWNS = CROWN | CROWN << 1 | CROWN << 2;
+
+    /** Folder the archive is stored in */
+    private final Path dir;
+    /** Digest the finished days are taken from */
+    private final DailyDigest digest;
+    /** File of the index */
+    private final Path indexFile;
+    /** Epoch days and rows of every player, packed as epoch day in the upper and row in the lower half */
+    private final Map<UUID, long[]> index = new HashMap<>();
+
+    /**
+     * Open the archive, rebuilding the index from the day files if it is missing.
+     * @param dir Folder the archive is stored in.
+     * @param digest Digest the finished days are taken from.
+     * @param logger Logger to report an unreadable index to.
+     * @throws IOException If the archive could not be opened.
+     */
+    public DayArchive(Path dir, DailyDigest digest, ComponentLogger logger) throws IOException {
+        this.dir = dir;
+        this.digest = digest;
+        this.indexFile = dir.resolve("index");
+        Files.createDirectories(dir);
+
+        if (Files.exists(this.indexFile)) {
+            try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.indexFile)))) {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != VERSION)
+                    throw new IOException("Unknown index format");
+
+                for (var i = in.readInt(); i > 0; i--) {
+                    var uuid = new UUID(in.readLong(), in.readLong());
+                    var entries = new long[in.readInt()];
+                    for (var j = 0; j < entries.length; j++)
+                        entries[j] = in.readLong();
+                    this.index.put(uuid, entries);
+                }
+                return;
+            } catch (IOException e) {
+                logger.error("Unable to read history index, rebuilding it", e);
+                this.index.clear();
+            }
+        }
+
+        // rebuild the index from the day files
+        try (var files = Files.list(dir)) {
+            for (var file : files.filter(f -> f.getFileName().toString().endsWith(".day")).sorted().toList())
+                this.indexDay(this.readDay(file));
+        }
+        this.writeIndex();
+    }
+
+    @Override
+    public void accept(GameEvent event) throws IOException {
+        // the digest is fed first and has finished the day by now
+        if (event.type() != EventType.RESET)
+            return;
+
+        var day = this.digest.getLast();
+        if (day.end() != event.time())
+            return;
+
+        var rows = this.write(day);
+        if (rows == null)
+            return;
+
+        synchronized (this) {
+            this.indexDay(rows);
+            this.writeIndex();
+        }
+    }
+
+    /**
+     * Get the rows of a player, oldest day first.
+     * @param uuid The unique id of the player.
+     * @return The rows of the player.
+     * @throws IOException If a day file could not be read.
+     */
+    public List<Row> player(UUID uuid) throws IOException {
+        long[] entries;
+        synchronized (this) {
+            entries = this.index.get(uuid);
+        }
+        if (entries == null)
+            return List.of();
+
+        var rows = new ArrayList<Row>(entries.length);
+        var buffer = ByteBuffer.allocate(HEADER_SIZE);
+        for (var entry : entries) {
+            var date = LocalDate.ofEpochDay(entry >> 32);
+            var row = (int) entry;
+            try (var channel = FileChannel.open(this.file(date), StandardOpenOption.READ)) {
+                // read the header, then the fields of the row from their columns
+                channel.read(buffer.clear(), 0);
+                var count = buffer.getInt(12);
+                channel.read(buffer.clear().limit(1), HEADER_SIZE + 16L * count + row);
+                var flags = buffer.get(0) & 0xFF;
+                channel.read(buffer.clear().limit(4), HEADER_SIZE + 17L * count + 4L * row);
+                var heads = buffer.getInt(0);
+                channel.read(buffer.clear().limit(8), HEADER_SIZE + 21L * count + 8L * row);
+                rows.add(new Row(uuid, date, flags, heads, buffer.getLong(0)));
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Get all rows of a day.
+     * @param date The date of the day.
+     * @return The rows of the day or null if the day has not been archived.
+     * @throws IOException If the day file could not be read.
+     */
+    public List<Row> day(LocalDate date) throws IOException {
+        var file = this.file(date);
+        return Files.exists(file) ? this.readDay(file) : null;
+    }
+
+    /**
+     * Write a finished day into the day file of its date, adding to the rows of earlier resets on the same date.
+     * @param day The digest of the day.
+     * @return All rows of the date or null if the day has already been archived.
+     * @throws IOException If the day file could not be written.
+     */
+    private List<Row> write(DailyDigest.Day day) throws IOException {
+        // the day ends at midnight, possibly slightly early or late, or earlier on the same date after a manual reset
+        var date = Instant.ofEpochMilli(day.end()).atOffset(ZoneOffset.UTC).minusHours(1).toLocalDate();
+        var file = this.file(date);
+
+        // keep the rows of an earlier reset on the same date without their crowns, unless this day was archived before a crash already
+        var previous = new LinkedHashMap<UUID, Row>();
+        var peak = day.peak();
+        if (Files.exists(file)) {
+            var header = ByteBuffer.wrap(Files.readAllBytes(file), 0, HEADER_SIZE);
+            if (header.getLong(16) >= day.end())
+                return null;
+
+            peak = Math.max(peak, header.getInt(24));
+            for (var row : this.readDay(file))
+                previous.put(row.uuid(), new Row(row.uuid(), date, row.flags() & ~CROWNS, row.heads(), row.crownTime()));
+        }
+
+        // collect every player that took part in the day
+        var players = new LinkedHashMap<UUID, int[]>();
+        for (var uuid : day.survivors())
+            players.computeIfAbsent(uuid, k -> new int[1])[0] |= SURVIVED;
+        for (var uuid : day.deaths())
+            players.computeIfAbsent(uuid, k -> new int[1])[0] |= DIED;
+        for (var type = 0; type < day.crownHolders().size(); type++)
+            if (day.crownHolders().get(type) != null)
+                players.computeIfAbsent(day.crownHolders().get(type), k -> new int[1])[0] |= CROWN << type;
+        for (var uuid : day.kills().keySet())
+            players.computeIfAbsent(uuid, k -> new int[1]);
+        for (var uuid : day.crownTime().keySet())
+            players.computeIfAbsent(uuid, k -> new int[1]);
+
+        // add up the rows of both resets, the crowns are the ones held at the later reset
+        for (var entry : players.entrySet()) {
+            var uuid = entry.getKey();
+            var row = previous.getOrDefault(uuid, new Row(uuid, date, 0, 0, 0));
+            previous.put(uuid, new Row(uuid, date, row.flags() | entry.getValue()[0], row.heads() + day.kills().getOrDefault(uuid, 0), row.crownTime() + day.crownTime().getOrDefault(uuid, 0L)));
+        }
+        var rows = List.copyOf(previous.values());
+
+        // write the columns one after another
+        var buffer = ByteBuffer.allocate(HEADER_SIZE + 29 * rows.size());
+        buffer.putInt(DAY_MAGIC).putInt(VERSION).putInt((int) date.toEpochDay()).putInt(rows.size()).putLong(day.end()).putInt(peak);
+        for (var row : rows)
+            buffer.putLong(row.uuid().getMostSignificantBits());
+        for (var row : rows)
+            buffer.putLong(row.uuid().getLeastSignificantBits());
+        for (var row : rows)
+            buffer.put((byte) row.flags());
+        for (var row : rows)
+            buffer.putInt(row.heads());
+        for (var row : rows)
+            buffer.putLong(row.crownTime());
+
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return rows;
+    }
+
+    /**
+     * Read all rows of a day file.
+     * @param file The day file.
+     * @return The rows of the day.
+     * @throws IOException If the day file could not be read.
+     */
+    private List<Row> readDay(Path file) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.getInt(0) != DAY_MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Unknown day file format: " + file);
+
+        var date = LocalDate.ofEpochDay(buffer.getInt(8));
+        var count = buffer.getInt(12);
+        var rows = new ArrayList<Row>(count);
+        for (var i = 0; i < count; i++) {
+            rows.add(new Row(
+                    new UUID(buffer.getLong(HEADER_SIZE + 8 * i), buffer.getLong(HEADER_SIZE + 8 * count + 8 * i)),
+                    date,
+                    buffer.get(HEADER_SIZE + 16 * count + i) & 0xFF,
+                    buffer.getInt(HEADER_SIZE + 17 * count + 4 * i),
+                    buffer.getLong(HEADER_SIZE + 21 * count + 8 * i)
+            ));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Add the rows of a day to the index, replacing all earlier entries of the same day.
+     * @param rows All rows of the day.
+     */
+    private void indexDay(List<Row> rows) {
+        if (rows.isEmpty())
+            return;
+
+        // drop every entry of a rewritten day, as its rows may have moved
+        var epochDay = rows.getFirst().date().toEpochDay();
+        this.index.replaceAll((uuid, entries) -> Arrays.stream(entries).filter(e -> e >> 32 != epochDay).toArray());
+        this.index.values().removeIf(entries -> entries.length == 0);
+
+        for (var i = 0; i < rows.size(); i++) {
+            var entries = this.index.getOrDefault(rows.get(i).uuid(), new long[0]);
+            entries = Arrays.copyOf(entries, entries.length + 1);
+            entries[entries.length - 1] = epochDay << 32 | i;
+            Arrays.sort(entries);
+            this.index.put(rows.get(i).uuid(), entries);
+        }
+    }
+
+    /**
+     * Write the index, replacing the previous file atomically.
+     * @throws IOException If the index could not be written.
+     */
+    private void writeIndex() throws IOException {
+        var temp = this.indexFile.resolveSibling("index.tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.index.size());
+            for (var entry : this.index.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeInt(entry.getValue().length);
+                for (var e : entry.getValue())
+                    out.writeLong(e);
+            }
+        }
+        Files.move(temp, this.indexFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Get the file of a day.
+     * @param date The date of the day.
+     * @return The day file.
+     */
+    private Path file(LocalDate date) {
+        return this.dir.resolve(date + ".day");
+    }
+
+    /**
+     * Archived day of a player.
+     * @param uuid The unique id of the player.
+     * @param date The date of the day.
+     * @param flags Whether the player survived, died or held a crown at the end of the day.
+     * @param heads Heads collected by the player that day.
+     * @param crownTime Milliseconds the player held a crown that day.
+     */
+    public record Row(UUID uuid, LocalDate date, int flags, int heads, long crownTime) {
+
+        /**
+         * Check if the player survived the day.
+         * @return True if the player survived, false otherwise.
+         */
+        public boolean survived() {
+            return (this.flags & SURVIVED) != 0;
+        }
+
+        /**
+         * Check if the player died that day.
+         * @return True if the player died, false otherwise.
+         */
+        public boolean died() {
+            return (this.flags & DIED) != 0;
+        }
+
+        /**
+         * Get the crown the player held at the end of the day.
+         * @return The crown type ordinal or -1 if none.
+         */
+        public int crown() {
+            for (var type = 0; type < 3; type++)
+                if ((this.flags & CROWN << type) != 0)
+                    return type;
+            return -1;
+        }
+
+    }
+
+}
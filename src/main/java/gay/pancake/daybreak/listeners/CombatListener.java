@@ -1,6 +1,7 @@
 package gay.pancake.daybreak.listeners;
 
 import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.events.EventType;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -21,6 +22,9 @@ import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
  */
 public class CombatListener implements Listener {
 
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+
     /** Players currently in combat */
     public final Map<Player, Integer> timers = new HashMap<>();
 
@@ -38,6 +42,7 @@ public class CombatListener implements Listener {
      * @param plugin Daybreak plugin instance.
      */
     public CombatListener(DaybreakPlugin plugin) {
+        this.plugin = plugin;
         Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
             // Handle combat
             for (var entry : new HashMap<>(this.timers).entrySet()) {
@@ -126,6 +131,7 @@ public class CombatListener implements Listener {
     public void onQuit(PlayerQuitEvent e) {
         var p = e.getPlayer();
         if (this.timers.containsKey(p) && !p.isDead()) {
+            this.plugin.events.append(EventType.COMBAT_LOG, p.getUniqueId());
             p.setLastDamageCause(new EntityDamageEvent(p, EntityDamageEvent.DamageCause.CUSTOM, 1000));
             p.setHealth(0);
         } else if (!this.safe.remove(p)) {
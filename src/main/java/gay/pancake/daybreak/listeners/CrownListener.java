@@ -2,8 +2,7 @@ package gay.pancake.daybreak.listeners;
 
 import gay.pancake.daybreak.DaybreakPlugin;
 import gay.pancake.daybreak.crowns.Crown;
-import gay.pancake.daybreak.DaybreakBootstrap;
-import lombok.SneakyThrows;
+import gay.pancake.daybreak.events.EventType;
 import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -13,8 +12,7 @@ import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.world.WorldInitEvent;
 
-import java.nio.file.Files;
-import java.util.List;
+import java.util.Collection;
 import java.util.UUID;
 
 /**
@@ -41,38 +39,25 @@ public class CrownListener implements Listener {
      * Handle world init event.
      * @param e World init event.
      */
-    @EventHandler @SneakyThrows
+    @EventHandler
     public void onWorldInit(WorldInitEvent e) {
-        // load crown holders from file
-        var crownHolders = List.of("null", "null", "null");
-        if (Files.exists(DaybreakBootstrap.CROWNS_FILE))
-            crownHolders = Files.readAllLines(DaybreakBootstrap.CROWNS_FILE);
-
-        UUID uuid;
-        if (!crownHolders.get(0).trim().startsWith("null"))
-            uuid = UUID.fromString(crownHolders.get(0));
-        else
-            uuid = null;
-        this.crowns[0] = new Crown(Crown.CrownType.GOLDEN, (this.plugin.lastSession.contains(uuid) || this.plugin.isSurvivor(uuid)) ? uuid : null);
-
-        if (!crownHolders.get(1).trim().startsWith("null"))
-            uuid = UUID.fromString(crownHolders.get(1));
-        else
-            uuid = null;
-        this.crowns[1] = new Crown(Crown.CrownType.SILVER, (this.plugin.lastSession.contains(uuid) || this.plugin.isSurvivor(uuid)) ? uuid : null);
-
-        if (!crownHolders.get(2).trim().startsWith("null"))
-            uuid = UUID.fromString(crownHolders.get(2));
-        else
-            uuid = null;
-        this.crowns[2] = new Crown(Crown.CrownType.BRONZE, (this.plugin.lastSession.contains(uuid) || this.plugin.isSurvivor(uuid)) ? uuid : null);
+        // ignore worlds other than the play world
+        if (!e.getWorld().getName().equals(this.plugin.getWorldName()))
+            return;
+
+        // load crown holders from the state store, dropping holders that did not survive
+        var types = new Crown.CrownType[] { Crown.CrownType.GOLDEN, Crown.CrownType.SILVER, Crown.CrownType.BRONZE };
+        for (var i = 0; i < this.crowns.length; i++) {
+            var uuid = this.plugin.store.getCrownHolder(i);
+            this.crowns[i] = new Crown(types[i], uuid != null && (this.plugin.isLastSessionSurvivor(uuid) || this.plugin.isSurvivor(uuid)) ? uuid : null);
+        }
     }
 
     /**
      * Handle player death event.
      * @param e Player death event.
      */
-    @EventHandler @SneakyThrows
+    @EventHandler
     public void onDeath(PlayerDeathEvent e) {
         var p = e.getPlayer();
 
@@ -94,31 +79,32 @@ public class CrownListener implements Listener {
                 // check if killer holds higher crown
                 if (index < crownIndex) {
                     crown.dropCrown(p);
+                    this.plugin.events.append(EventType.CROWN_DROP, crownIndex, p.getUniqueId(), null);
                     return;
                 }
 
                 // remove crown from killer
                 heldCrown.dropCrown(killer);
+                this.plugin.events.append(EventType.CROWN_DROP, index, killer.getUniqueId(), null);
             }
 
             // transfer crown to killer
             crown.transferCrown(killer);
-        } else
+            this.plugin.events.append(EventType.CROWN_TRANSFER, crown.getType().ordinal(), killer.getUniqueId(), p.getUniqueId());
+        } else {
             crown.dropCrown(p);
+            this.plugin.events.append(EventType.CROWN_DROP, crown.getType().ordinal(), p.getUniqueId(), null);
+        }
 
         // save crown holders to file
-        Files.write(DaybreakBootstrap.CROWNS_FILE,
-                ((this.crowns[0].getHolder() == null ? "null" : this.crowns[0].getHolder().toString()) + "\n" +
-                (this.crowns[1].getHolder() == null ? "null" : this.crowns[1].getHolder().toString()) + "\n" +
-                (this.crowns[2].getHolder() == null ? "null" : this.crowns[2].getHolder().toString()) + "\n").getBytes()
-        );
+        this.saveCrowns();
     }
 
     /**
      * Handle player pickup item event
      * @param e Player pickup item event.
      */
-    @EventHandler @SneakyThrows
+    @EventHandler
     public void onPickup(EntityPickupItemEvent e) {
         // check if item is crown
         var crown = this.getCrown(e.getItem());
@@ -145,18 +131,16 @@ public class CrownListener implements Listener {
 
             // remove crown from player
             heldCrown.dropCrown(p);
+            this.plugin.events.append(EventType.CROWN_DROP, index, p.getUniqueId(), null);
         }
 
         // pick up the crown
         e.setCancelled(true);
         crown.pickupCrown(p);
+        this.plugin.events.append(EventType.CROWN_PICKUP, crown.getType().ordinal(), p.getUniqueId(), null);
 
         // save crown holders to file
-        Files.write(DaybreakBootstrap.CROWNS_FILE,
-                ((this.crowns[0].getHolder() == null ? "null" : this.crowns[0].getHolder().toString()) + "\n" +
-                (this.crowns[1].getHolder() == null ? "null" : this.crowns[1].getHolder().toString()) + "\n" +
-                (this.crowns[2].getHolder() == null ? "null" : this.crowns[2].getHolder().toString()) + "\n").getBytes()
-        );
+        this.saveCrowns();
     }
 
     /**
@@ -169,6 +153,25 @@ public class CrownListener implements Listener {
             crown.getBossBar().addPlayer(e.getPlayer());
     }
 
+    /**
+     * Reset crowns after the world has been swapped, dropping crowns of players that did not survive.
+     * @param survivors The survivors of the last day.
+     */
+    public void resetCrowns(Collection<UUID> survivors) {
+        for (var crown : this.crowns)
+            crown.reset(survivors.contains(crown.getHolder()));
+
+        this.saveCrowns();
+    }
+
+    /**
+     * Save crown holders to the state store.
+     */
+    private void saveCrowns() {
+        for (var i = 0; i < this.crowns.length; i++)
+            this.plugin.store.setCrownHolder(i, this.crowns[i].getHolder());
+    }
+
     /**
      * Get crown from entity
      * @param uuid The entity uuid.
@@ -1,6 +1,10 @@
 package gay.pancake.daybreak.listeners;
 
+import gay.pancake.daybreak.DaybreakConfig;
 import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.events.EventType;
+import gay.pancake.daybreak.pregen.ChunkyPregenerator;
+import gay.pancake.daybreak.pregen.NativePregenerator;
 import io.papermc.paper.event.player.AsyncChatEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
@@ -15,6 +19,8 @@ import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginEnableEvent;
+import org.bukkit.event.server.ServerLoadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
 
 import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
 import static net.kyori.adventure.text.minimessage.tag.resolver.Placeholder.*;
@@ -43,6 +49,7 @@ public class MiscListener implements Listener {
      */
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent e) {
+        this.plugin.events.append(EventType.JOIN, 0, Bukkit.getOnlinePlayers().size(), e.getPlayer().getUniqueId(), null);
         e.joinMessage(miniMessage().deserialize("<prefix><gold><player></gold> <red>joined the game</red>", DaybreakPlugin.PREFIX, unparsed("player", e.getPlayer().getName())));
         e.getPlayer().sendPlayerListHeaderAndFooter(miniMessage().deserialize("<red><bold>Daybreak</bold></red>"), miniMessage().deserialize("<gray>The hardcore Minecraft server, which resets every 24 hours</gray>"));
     }
@@ -55,6 +62,9 @@ public class MiscListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent e) {
         e.quitMessage(null);
         var p = e.getPlayer();
+        this.plugin.events.append(EventType.QUIT, 0, Bukkit.getOnlinePlayers().size() - 1, p.getUniqueId(), null);
+        this.plugin.admission.remove(p);
+        this.plugin.viewGovernor.remove(p);
         if (p.getGameMode() == GameMode.SPECTATOR || p.isDead() || p.getHealth() < 0.01)
             return;
 
@@ -77,8 +87,34 @@ public class MiscListener implements Listener {
      */
     @EventHandler
     public void onPluginLoad(PluginEnableEvent e) {
-        if (e.getPlugin().getName().equals("Chunky"))
-            this.plugin.onChunkyInit(Bukkit.getWorld("world"));
+        if (e.getPlugin().getName().equals("Chunky") && "chunky".equals(DaybreakConfig.PREGENERATOR))
+            this.plugin.onPregenInit(ChunkyPregenerator.create(this.plugin));
+    }
+
+    /**
+     * Handle server load event.
+     * @param e Server load event.
+     */
+    @EventHandler
+    public void onServerLoad(ServerLoadEvent e) {
+        // use built-in pregenerator if chunky is not used or not installed
+        this.plugin.onPregenInit(new NativePregenerator(this.plugin));
+
+        // create the holding world once instead of when the first player is held
+        this.plugin.admission.load();
+    }
+
+    /**
+     * Handle world load event.
+     * @param e World load event.
+     */
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent e) {
+        // disable autosave of a world that is deleted at reset anyway
+        if (DaybreakConfig.EPHEMERAL_WORLD && e.getWorld().equals(Bukkit.getWorlds().getFirst())) {
+            e.getWorld().setAutoSave(false);
+            this.plugin.getLogger().info("Disabled autosave for ephemeral world " + e.getWorld().getName());
+        }
     }
 
     /**
@@ -1,6 +1,8 @@
 package gay.pancake.daybreak.listeners;
 
 import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.events.EventType;
+import gay.pancake.daybreak.worlds.HotReset;
 import org.bukkit.Bukkit;
 import org.bukkit.GameMode;
 import org.bukkit.entity.Player;
@@ -9,7 +11,6 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
-import org.bukkit.event.player.PlayerLoginEvent;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -36,16 +37,6 @@ public class SurvivalListener implements Listener {
         this.plugin = plugin;
     }
 
-    /**
-     * Handle player login event.
-     * @param e Player login event.
-     */
-    @EventHandler
-    public void onPlayerLogin(PlayerLoginEvent e) {
-        if (!this.plugin.isOnline())
-            e.disallow(PlayerLoginEvent.Result.KICK_WHITELIST, miniMessage().deserialize("<red>The server is still starting!</red>"));
-    }
-
     /**
      * Handle player join event.
      * @param e Player join event.
@@ -54,42 +45,85 @@ public class SurvivalListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent e) {
         // check if player is already a survivor - return if true
         var player = e.getPlayer();
-        if (this.plugin.isSurvivor(player.getUniqueId()))
+        var session = this.plugin.sessions.get(player);
+        if (session.isSurvivor())
             return;
 
-        // check if player joined for the first time - spread out if true
-        if (player.getGameMode() != GameMode.SURVIVAL || this.plugin.removeLastSessionSurvivor(player.getUniqueId())) {
-            player.sendMessage(miniMessage().deserialize("""
-                    <prefix><bold>Daybreak</bold>
-                    <prefix>Welcome to the server! You've been teleported to a random location.
-                    <prefix>
-                    <prefix>Daybreak is a <gold>hardcore survival server</gold> <red>that resets every day.</red>
-                    <prefix>If you die, you will be <gold>banned</gold> <red>for the rest of the day.</red>
-                    <prefix>If you want to preserve your items to the next map,
-                    <prefix>you have to survive at least 5 minutes.""", DaybreakPlugin.PREFIX));
-
-            // add spawn protection
-            if (player.getInventory().isEmpty()) {
-                this.spawnProtection.put(player, System.currentTimeMillis());
-                player.sendMessage(miniMessage().deserialize("<prefix>\n<prefix>Your spawn protection towards other players will expire in 5 minutes.", DaybreakPlugin.PREFIX));
-            }
-
-            // spread player
-            var x = (int) (Math.random() * DaybreakPlugin.BORDER_RADIUS * 2) - DaybreakPlugin.BORDER_RADIUS;
-            var z = (int) (Math.random() * DaybreakPlugin.BORDER_RADIUS * 2) - DaybreakPlugin.BORDER_RADIUS;
-            var location = player.getWorld().getHighestBlockAt(x, z).getLocation().add(0, 1, 0);
-            player.setGameMode(GameMode.SURVIVAL);
-            player.setHealth(20.0f);
-            player.setFallDistance(0f);
-            player.teleport(location);
+        // check if player joined for the first time or left while waiting in limbo - queue for spreading if true
+        var firstJoin = session.isLastSession() && this.plugin.isLastSessionSurvivor(player.getUniqueId());
+        var inLimbo = HotReset.HOLDING_WORLD.equals(player.getWorld().getName());
+        if (player.getGameMode() != GameMode.SURVIVAL || firstJoin || inLimbo) {
+            this.plugin.admission.enqueue(player);
+            return;
         }
 
         // add timer for adding player to survivors list
+        this.startSurvivorTimer(player);
+    }
+
+    /**
+     * Spread a player admitted by the admission queue and start their survivor timer.
+     * @param player The player.
+     */
+    public void admit(Player player) {
+        // the player has joined this session once admitted
+        this.plugin.removeLastSessionSurvivor(player.getUniqueId());
+        this.spread(player);
+        this.startSurvivorTimer(player);
+    }
+
+    /**
+     * Welcome a player and teleport them to a random location in the world.
+     * @param player The player to spread.
+     */
+    public void spread(Player player) {
+        player.sendMessage(miniMessage().deserialize("""
+                <prefix><bold>Daybreak</bold>
+                <prefix>Welcome to the server! You've been teleported to a random location.
+                <prefix>
+                <prefix>Daybreak is a <gold>hardcore survival server</gold> <red>that resets every day.</red>
+                <prefix>If you die, you will be <gold>banned</gold> <red>for the rest of the day.</red>
+                <prefix>If you want to preserve your items to the next map,
+                <prefix>you have to survive at least 5 minutes.""", DaybreakPlugin.PREFIX));
+
+        // add spawn protection
+        if (player.getInventory().isEmpty()) {
+            this.spawnProtection.put(player, System.currentTimeMillis());
+            player.sendMessage(miniMessage().deserialize("<prefix>\n<prefix>Your spawn protection towards other players will expire in 5 minutes.", DaybreakPlugin.PREFIX));
+        }
+
+        // spread player to a pooled spawn or a safe cached surface away from others, falling back to chunks that have already been generated
+        var location = this.plugin.spawnPool.take(this.plugin.spawnGrid);
+        if (location == null)
+            location = this.plugin.spawnGrid.pick(() -> this.plugin.surfaceCache.findSafeSurface(16), 8);
+        if (location == null) {
+            var world = this.plugin.getWorld();
+            int x, z, attempts = 0;
+            do {
+                x = (int) (Math.random() * DaybreakPlugin.BORDER_RADIUS * 2) - DaybreakPlugin.BORDER_RADIUS;
+                z = (int) (Math.random() * DaybreakPlugin.BORDER_RADIUS * 2) - DaybreakPlugin.BORDER_RADIUS;
+            } while (!world.isChunkGenerated(x >> 4, z >> 4) && ++attempts < 16);
+            location = world.getHighestBlockAt(x, z).getLocation().add(0, 1, 0);
+        }
+        player.setGameMode(GameMode.SURVIVAL);
+        player.setHealth(20.0f);
+        player.setFallDistance(0f);
+        player.teleportAsync(location);
+        this.plugin.viewGovernor.onSpread(player);
+        this.plugin.spawnGrid.record(location.getBlockX(), location.getBlockZ());
+    }
+
+    /**
+     * Mark a player as survivor if they are still online in 5 minutes.
+     * @param player The player.
+     */
+    public void startSurvivorTimer(Player player) {
         var login = player.getLastLogin();
         Bukkit.getScheduler().runTaskLater(this.plugin, () -> {
             if (player.getLastLogin() != login || !player.isOnline())
                 return;
             this.plugin.addSurvivor(player.getUniqueId());
+            this.plugin.events.append(EventType.SURVIVOR, player.getUniqueId());
             player.sendMessage(miniMessage().deserialize("<prefix>You are now marked as a survivor", DaybreakPlugin.PREFIX));
         }, 20L*60*5);
     }
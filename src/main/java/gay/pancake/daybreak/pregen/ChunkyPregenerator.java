@@ -0,0 +1,70 @@
+package gay.pancake.daybreak.pregen;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.popcraft.chunky.api.ChunkyAPI;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Pregenerator using the chunky plugin.
+ * @author Pancake
+ */
+public class ChunkyPregenerator implements Pregenerator {
+
+    /** Chunky api instance */
+    private final ChunkyAPI chunky;
+    /** Progress listeners by world */
+    private final Map<String, LongConsumer> progress = new ConcurrentHashMap<>();
+    /** Completion listeners by world */
+    private final Map<String, Runnable> completion = new ConcurrentHashMap<>();
+
+    /**
+     * Initialize chunky pregenerator.
+     * @param plugin Plugin to schedule completion listeners with.
+     * @param chunky Chunky api instance.
+     */
+    private ChunkyPregenerator(Plugin plugin, ChunkyAPI chunky) {
+        this.chunky = chunky;
+        chunky.onGenerationProgress(e -> {
+            var listener = this.progress.get(e.world());
+            if (listener != null)
+                listener.accept(e.chunks());
+        });
+        chunky.onGenerationComplete(e -> Bukkit.getScheduler().runTask(plugin, () -> {
+            this.progress.remove(e.world());
+            var listener = this.completion.remove(e.world());
+            if (listener != null)
+                listener.run();
+        }));
+    }
+
+    /**
+     * Create chunky pregenerator, only call this if chunky is loaded.
+     * @param plugin Plugin to schedule completion listeners with.
+     * @return The pregenerator.
+     */
+    public static Pregenerator create(Plugin plugin) {
+        return new ChunkyPregenerator(plugin, Bukkit.getServer().getServicesManager().load(ChunkyAPI.class));
+    }
+
+    @Override
+    public void start(String world, int radius, LongConsumer onProgress, Runnable onComplete) {
+        this.progress.put(world, onProgress);
+        this.completion.put(world, onComplete);
+        this.chunky.startTask(world, "square", 0, 0, radius, radius, "concentric");
+    }
+
+    @Override
+    public void pause(String world) {
+        this.chunky.pauseTask(world);
+    }
+
+    @Override
+    public void resume(String world) {
+        this.chunky.continueTask(world);
+    }
+
+}
@@ -0,0 +1,119 @@
+package gay.pancake.daybreak.pregen;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+
+import static gay.pancake.daybreak.DaybreakConfig.RING_MAX_MSPT;
+
+/**
+ * Generates the play world in two stages: the area inside the border, after which logins open, and the empty ring around it.
+ * @author Pancake
+ */
+public class GenerationController {
+
+    /**
+     * Stages of generating a world
+     */
+    public enum Stage {
+        /** Nothing is being generated */
+        IDLE,
+        /** The area inside the border is being generated */
+        CORE,
+        /** The empty ring outside the border is being generated */
+        RING
+    }
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Pregenerator generating the chunks */
+    private final Pregenerator pregenerator;
+
+    /** Progress of the generation */
+    @Getter private final PregenProgress progress = new PregenProgress();
+
+    /** The world being generated */
+    private volatile String world;
+    /** The current stage of generation */
+    private Stage stage = Stage.IDLE;
+    /** Whether generation of the ring is paused due to load */
+    private boolean paused;
+
+    /**
+     * Initialize generation controller.
+     * @param plugin Daybreak plugin instance.
+     * @param pregenerator Pregenerator generating the chunks.
+     */
+    public GenerationController(DaybreakPlugin plugin, Pregenerator pregenerator) {
+        this.plugin = plugin;
+        this.pregenerator = pregenerator;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::throttle, 40, 40);
+
+        // log progress periodically
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            if (this.progress.isRunning())
+                plugin.getLogger().info(this.progress.describe());
+        }, 20*30, 20*30);
+    }
+
+    /**
+     * Start generating a world, beginning with the area inside the border.
+     * @param world The name of the world.
+     */
+    public void start(String world) {
+        this.world = world;
+        this.stage = Stage.CORE;
+        this.paused = false;
+
+        // include the barrier chunks just outside the border
+        var radius = DaybreakPlugin.BORDER_RADIUS + 16;
+        this.progress.clear();
+        this.progress.begin("core", PregenProgress.squareChunks(radius));
+        this.pregenerator.start(world, radius, this.progress::update, () -> this.onComplete(world));
+    }
+
+    /**
+     * Advance to the next stage once a generation task has completed.
+     * @param world The name of the world the task completed for.
+     */
+    private void onComplete(String world) {
+        if (!world.equals(this.world))
+            return;
+
+        switch (this.stage) {
+            case CORE -> {
+                this.progress.finish();
+                this.plugin.getLogger().info("Chunk generation completed inside the border of " + world + ", generating outer ring...");
+                this.stage = Stage.RING;
+                this.plugin.onWorldGenerated();
+
+                var radius = DaybreakPlugin.BORDER_RADIUS + (16*16);
+                this.progress.begin("ring", PregenProgress.squareChunks(radius));
+                this.pregenerator.start(world, radius, this.progress::update, () -> this.onComplete(world));
+            }
+            case RING -> {
+                this.progress.finish();
+                this.plugin.getLogger().info("Chunk generation completed for " + world + ": " + this.progress.describe());
+                this.stage = Stage.IDLE;
+            }
+        }
+    }
+
+    /**
+     * Pause generation of the ring while the server is lagging and continue once it has recovered.
+     */
+    private void throttle() {
+        if (this.stage != Stage.RING)
+            return;
+
+        var mspt = Bukkit.getAverageTickTime();
+        if (!this.paused && mspt > RING_MAX_MSPT) {
+            this.pregenerator.pause(this.world);
+            this.paused = true;
+        } else if (this.paused && mspt < RING_MAX_MSPT * 0.75) {
+            this.pregenerator.resume(this.world);
+            this.paused = false;
+        }
+    }
+
+}
@@ -0,0 +1,274 @@
+package gay.pancake.daybreak.pregen;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Pregenerator using paper's asynchronous chunk loading, generating chunks in a spiral from the origin outwards.
+ * Progress is checkpointed into the world folder so an interrupted task resumes where it stopped, counting only chunks that have been saved.
+ * @author Pancake
+ */
+public class NativePregenerator implements Pregenerator, Listener {
+
+    /** Number of available cores */
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    /** Milliseconds per tick above which fewer chunks are requested at once */
+    private static final double TARGET_MSPT = 40.0;
+
+    /** Plugin owning the generation tasks */
+    private final Plugin plugin;
+    /** Running tasks by world */
+    private final Map<String, Task> tasks = new HashMap<>();
+
+    /**
+     * Initialize native pregenerator.
+     * @param plugin Plugin owning the generation tasks.
+     */
+    public NativePregenerator(Plugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            for (var task : Map.copyOf(this.tasks).values())
+                task.tick();
+        }, 1, 1);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            for (var task : this.tasks.values())
+                task.adapt();
+        }, 20, 20);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            for (var task : this.tasks.values())
+                task.checkpoint();
+        }, 20*10, 20*10);
+    }
+
+    @Override
+    public void start(String world, int radius, LongConsumer onProgress, Runnable onComplete) {
+        this.tasks.put(world, new Task(world, radius, onProgress, onComplete));
+    }
+
+    @Override
+    public void pause(String world) {
+        var task = this.tasks.get(world);
+        if (task != null)
+            task.paused = true;
+    }
+
+    @Override
+    public void resume(String world) {
+        var task = this.tasks.get(world);
+        if (task != null)
+            task.paused = false;
+    }
+
+    /**
+     * Checkpoint generated chunks once they are saved on unload.
+     * @param e Chunk unload event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent e) {
+        var task = this.tasks.get(e.getWorld().getName());
+        if (task != null && e.isSaveChunk())
+            task.saved(e.getChunk().getX(), e.getChunk().getZ());
+    }
+
+    /**
+     * Checkpoint all generated chunks once the world is saved.
+     * @param e World save event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldSave(WorldSaveEvent e) {
+        var task = this.tasks.get(e.getWorld().getName());
+        if (task != null)
+            task.savedAll();
+    }
+
+    /**
+     * Order the chunks of a square around the origin in a spiral from the center outwards.
+     * @param radius The radius of the square in chunks.
+     * @return The packed chunk coordinates.
+     */
+    static long[] spiral(int radius) {
+        var side = radius * 2 + 1;
+        var chunks = new long[side * side];
+        var i = 0;
+        chunks[i++] = pack(0, 0);
+        for (var ring = 1; ring <= radius; ring++) {
+            for (var x = -ring; x < ring; x++) chunks[i++] = pack(x, -ring);
+            for (var z = -ring; z < ring; z++) chunks[i++] = pack(ring, z);
+            for (var x = ring; x > -ring; x--) chunks[i++] = pack(x, ring);
+            for (var z = ring; z > -ring; z--) chunks[i++] = pack(-ring, z);
+        }
+        return chunks;
+    }
+
+    /**
+     * Pack chunk coordinates into a long.
+     * @param x The chunk x coordinate.
+     * @param z The chunk z coordinate.
+     * @return The packed coordinates.
+     */
+    static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Generation task of a single world
+     */
+    private class Task {
+
+        /** The name of the world */
+        private final String world;
+        /** The chunks to generate in order */
+        private final long[] chunks;
+        /** Called with the number of completed chunks */
+        private final LongConsumer onProgress;
+        /** Called once all chunks have been generated */
+        private final Runnable onComplete;
+
+        /** Index of the next chunk to request */
+        private int cursor;
+        /** Number of chunks requested but not yet generated */
+        private int inFlight;
+        /** Maximum number of chunks requested at once */
+        private int maxInFlight = CORES * 2;
+        /** Number of chunks completed */
+        private long done;
+        /** Whether the task is paused */
+        private boolean paused;
+        /** Checkpoint of generated chunks or null if the world has not been loaded yet */
+        private PregenCheckpoint checkpoint;
+        /** Whether the checkpoint is used, which it is not for worlds that are not saved */
+        private boolean trusted;
+        /** Chunks generated but not saved yet */
+        private final Set<Long> unsaved = new HashSet<>();
+
+        /**
+         * Create generation task.
+         * @param world The name of the world.
+         * @param radius The radius of the square in blocks.
+         * @param onProgress Called with the number of completed chunks.
+         * @param onComplete Called once all chunks have been generated.
+         */
+        private Task(String world, int radius, LongConsumer onProgress, Runnable onComplete) {
+            this.world = world;
+            this.chunks = spiral((radius + 15) >> 4);
+            this.onProgress = onProgress;
+            this.onComplete = onComplete;
+        }
+
+        /**
+         * Request chunks until the limit of chunks in flight is reached.
+         */
+        private void tick() {
+            var world = Bukkit.getWorld(this.world);
+            if (world == null) {
+                tasks.remove(this.world);
+                return;
+            }
+
+            var border = DaybreakPlugin.BORDER_RADIUS / 16;
+            if (this.checkpoint == null) {
+                this.checkpoint = new PregenCheckpoint(world.getWorldFolder().toPath(), border);
+                this.trusted = world.isAutoSave();
+            }
+
+            while (!this.paused && this.inFlight < this.maxInFlight && this.cursor < this.chunks.length) {
+                var chunk = this.chunks[this.cursor++];
+                int x = (int) (chunk >> 32), z = (int) chunk;
+
+                // chunks beyond the barrier are empty, they are generated cheaply on demand instead
+                if (x < -border - 1 || x > border || z < -border - 1 || z > border) {
+                    this.done++;
+                    continue;
+                }
+
+                // chunks generated before an interruption are not requested again
+                if (this.trusted && this.checkpoint.isDone(x, z)) {
+                    this.done++;
+                    continue;
+                }
+
+                this.inFlight++;
+                world.getChunkAtAsync(x, z, true).whenComplete((c, e) -> Bukkit.getScheduler().runTask(plugin, () -> {
+                    if (e != null)
+                        plugin.getSLF4JLogger().warn("Unable to generate chunk " + x + ", " + z + " in " + this.world, e);
+                    else
+                        this.unsaved.add(pack(x, z));
+                    this.inFlight--;
+                    this.done++;
+                }));
+            }
+            this.onProgress.accept(this.done);
+
+            // finish task once every chunk has been generated
+            if (this.cursor >= this.chunks.length && this.inFlight == 0) {
+                tasks.remove(this.world);
+                this.checkpoint();
+                this.onComplete.run();
+            }
+        }
+
+        /**
+         * Mark a generated chunk in the checkpoint once it has been saved.
+         * @param x The chunk x coordinate.
+         * @param z The chunk z coordinate.
+         */
+        private void saved(int x, int z) {
+            if (this.unsaved.remove(pack(x, z)))
+                this.checkpoint.mark(x, z);
+        }
+
+        /**
+         * Mark all generated chunks in the checkpoint once the world has been saved.
+         */
+        private void savedAll() {
+            for (var chunk : this.unsaved)
+                this.checkpoint.mark((int) (chunk >> 32), (int) (long) chunk);
+            this.unsaved.clear();
+        }
+
+        /**
+         * Write the checkpoint to disk in the background if chunks have been saved since the last write.
+         */
+        private void checkpoint() {
+            var snapshot = this.checkpoint == null || !this.trusted ? null : this.checkpoint.snapshot();
+            if (snapshot == null)
+                return;
+
+            var checkpoint = this.checkpoint;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    checkpoint.write(snapshot);
+                } catch (IOException e) {
+                    plugin.getSLF4JLogger().warn("Unable to write generation checkpoint of " + this.world, e);
+                }
+            });
+        }
+
+        /**
+         * Adapt the number of chunks in flight to the server load.
+         */
+        private void adapt() {
+            var mspt = Bukkit.getAverageTickTime();
+            if (mspt > TARGET_MSPT)
+                this.maxInFlight = Math.max(2, this.maxInFlight / 2);
+            else if (mspt < TARGET_MSPT * 0.75 && this.inFlight >= this.maxInFlight)
+                this.maxInFlight = Math.min(CORES * 8, this.maxInFlight + Math.max(1, CORES / 2));
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+package gay.pancake.daybreak.pregen;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bitmap of generated chunks within the border square, allowing interrupted generation to resume where it stopped.
+ * @author Pancake
+ */
+public class PregenCheckpoint {
+
+    /** Name of the checkpoint file inside the world folder */
+    public static final String FILE_NAME = "daybreak.pregen";
+
+    /** File the checkpoint is stored in */
+    private final Path file;
+    /** Offset of the lowest chunk coordinate inside the square */
+    private final int offset;
+    /** Side length of the square in chunks */
+    private final int side;
+    /** Bitmap of generated chunks, row by row */
+    private final long[] bits;
+
+    /** Whether chunks have been marked since the last snapshot */
+    private boolean dirty;
+    /** Sequence number of the last snapshot */
+    private long sequence;
+    /** Sequence number of the last written snapshot */
+    private long written;
+
+    /**
+     * Open a checkpoint, reading all chunks generated so far.
+     * @param folder The world folder the checkpoint is stored in.
+     * @param border The border radius in chunks.
+     */
+    public PregenCheckpoint(Path folder, int border) {
+        this.file = folder.resolve(FILE_NAME);
+        this.offset = border + 1;
+        this.side = border * 2 + 2;
+        this.bits = new long[(this.side * this.side + 63) / 64];
+
+        // load previous checkpoint unless the border has changed since
+        try {
+            if (Files.exists(this.file)) {
+                var buffer = ByteBuffer.wrap(Files.readAllBytes(this.file));
+                if (buffer.remaining() == 4 + this.bits.length * 8 && buffer.getInt() == this.side)
+                    buffer.asLongBuffer().get(this.bits);
+            }
+        } catch (IOException ignored) {
+            // a broken checkpoint only costs regenerating the chunks
+        }
+    }
+
+    /**
+     * Check if a chunk has been generated.
+     * @param x The chunk x coordinate.
+     * @param z The chunk z coordinate.
+     * @return True if the chunk is inside the square and has been generated, false otherwise.
+     */
+    public boolean isDone(int x, int z) {
+        var index = this.index(x, z);
+        return index >= 0 && (this.bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Mark a chunk as generated.
+     * @param x The chunk x coordinate.
+     * @param z The chunk z coordinate.
+     */
+    public void mark(int x, int z) {
+        var index = this.index(x, z);
+        if (index < 0)
+            return;
+
+        this.bits[index >>> 6] |= 1L << index;
+        this.dirty = true;
+    }
+
+    /**
+     * Take a snapshot of the bitmap if chunks have been marked since the last one.
+     * @return The snapshot or null if nothing changed.
+     */
+    public Snapshot snapshot() {
+        if (!this.dirty)
+            return null;
+
+        this.dirty = false;
+        return new Snapshot(++this.sequence, this.bits.clone());
+    }
+
+    /**
+     * Write a snapshot to disk, replacing the previous checkpoint atomically.
+     * @param snapshot The snapshot.
+     * @throws IOException If the checkpoint could not be written.
+     */
+    public synchronized void write(Snapshot snapshot) throws IOException {
+        if (snapshot.sequence() <= this.written)
+            return;
+
+        var buffer = ByteBuffer.allocate(4 + snapshot.bits().length * 8);
+        buffer.putInt(this.side);
+        buffer.asLongBuffer().put(snapshot.bits());
+
+        var temp = this.file.resolveSibling(FILE_NAME + ".tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(buffer);
+            channel.force(true);
+        }
+        Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.written = snapshot.sequence();
+    }
+
+    /**
+     * Get the bit index of a chunk.
+     * @param x The chunk x coordinate.
+     * @param z The chunk z coordinate.
+     * @return The bit index or -1 if the chunk is outside the square.
+     */
+    private int index(int x, int z) {
+        x += this.offset;
+        z += this.offset;
+        if (x < 0 || z < 0 || x >= this.side || z >= this.side)
+            return -1;
+
+        return z * this.side + x;
+    }
+
+    /**
+     * Copy of the bitmap taken on the main thread
+     * @param sequence The sequence number of the snapshot.
+     * @param bits The bitmap.
+     */
+    public record Snapshot(long sequence, long[] bits) {}
+
+}
@@ -0,0 +1,153 @@
+package gay.pancake.daybreak.pregen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of world generation with throughput over a rolling window, eta and duration of each phase.
+ * @author Pancake
+ */
+public class PregenProgress {
+
+    /** Number of samples kept for the rolling throughput */
+    private static final int SAMPLES = 64;
+    /** Length of the rolling throughput window in nanoseconds */
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(30);
+
+    /** Times of the samples in nanoseconds */
+    private final long[] times = new long[SAMPLES];
+    /** Completed chunks of the samples */
+    private final long[] counts = new long[SAMPLES];
+    /** Number of samples recorded in the current phase */
+    private int samples;
+
+    /** Durations of finished phases in nanoseconds */
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    /** Name of the current phase or null if idle */
+    private String phase;
+    /** Start of the current phase in nanoseconds */
+    private long start;
+    /** Total chunks of the current phase */
+    private long total;
+    /** Completed chunks of the current phase */
+    private long done;
+
+    /**
+     * Begin a new phase.
+     * @param phase The name of the phase.
+     * @param total The total number of chunks of the phase.
+     */
+    public synchronized void begin(String phase, long total) {
+        this.phase = phase;
+        this.start = System.nanoTime();
+        this.total = total;
+        this.done = 0;
+        this.samples = 0;
+    }
+
+    /**
+     * Record the number of chunks completed in the current phase.
+     * @param done The number of completed chunks.
+     */
+    public synchronized void update(long done) {
+        if (this.phase == null)
+            return;
+
+        this.done = Math.min(done, this.total);
+        var i = this.samples++ % SAMPLES;
+        this.times[i] = System.nanoTime();
+        this.counts[i] = this.done;
+    }
+
+    /**
+     * Finish the current phase, recording its duration.
+     */
+    public synchronized void finish() {
+        if (this.phase == null)
+            return;
+
+        this.durations.put(this.phase, System.nanoTime() - this.start);
+        this.phase = null;
+    }
+
+    /**
+     * Clear all phases, for example when a new world is generated.
+     */
+    public synchronized void clear() {
+        this.durations.clear();
+        this.phase = null;
+    }
+
+    /**
+     * Get the throughput over the rolling window.
+     * @return The number of chunks generated per second.
+     */
+    public synchronized double getRate() {
+        if (this.samples < 2)
+            return 0;
+
+        // find oldest sample within the window
+        var latest = (this.samples - 1) % SAMPLES;
+        var oldest = latest;
+        for (var n = 1; n < Math.min(this.samples, SAMPLES); n++) {
+            var i = Math.floorMod(latest - n, SAMPLES);
+            if (this.times[latest] - this.times[i] > WINDOW)
+                break;
+            oldest = i;
+        }
+
+        var elapsed = this.times[latest] - this.times[oldest];
+        return elapsed == 0 ? 0 : (this.counts[latest] - this.counts[oldest]) * 1e9 / elapsed;
+    }
+
+    /**
+     * Check if a phase is currently running.
+     * @return True if generating, false otherwise.
+     */
+    public synchronized boolean isRunning() {
+        return this.phase != null;
+    }
+
+    /**
+     * Describe the progress in a single line.
+     * @return The progress description.
+     */
+    public synchronized String describe() {
+        var sb = new StringBuilder();
+        if (this.phase != null) {
+            var rate = this.getRate();
+            sb.append("Generating ").append(this.phase).append(": ").append(this.done).append('/').append(this.total)
+                .append(" chunks (").append(String.format("%.1f", this.total == 0 ? 100.0 : this.done * 100.0 / this.total)).append("%) at ")
+                .append(String.format("%.1f", rate)).append(" chunks/s, ETA ")
+                .append(rate == 0 ? "unknown" : formatDuration((long) ((this.total - this.done) / rate * 1e9)));
+        } else
+            sb.append("Not generating");
+
+        for (var entry : this.durations.entrySet())
+            sb.append(", ").append(entry.getKey()).append(" took ").append(formatDuration(entry.getValue()));
+
+        return sb.toString();
+    }
+
+    /**
+     * Format a duration as minutes and seconds.
+     * @param nanos The duration in nanoseconds.
+     * @return The formatted duration.
+     */
+    private static String formatDuration(long nanos) {
+        var seconds = TimeUnit.NANOSECONDS.toSeconds(nanos);
+        return seconds >= 60 ? (seconds / 60) + "m " + (seconds % 60) + "s" : seconds + "s";
+    }
+
+    /**
+     * Count the chunks of a square around the origin, as generated by chunky.
+     * @param radius The radius of the square in blocks.
+     * @return The number of chunks.
+     */
+    public static long squareChunks(int radius) {
+        long side = (radius >> 4) - (-radius >> 4) + 1;
+        return side * side;
+    }
+
+}
@@ -0,0 +1,32 @@
+package gay.pancake.daybreak.pregen;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Generates square areas of worlds ahead of time.
+ * @author Pancake
+ */
+public interface Pregenerator {
+
+    /**
+     * Start generating a square around the origin of a world.
+     * @param world The name of the world.
+     * @param radius The radius of the square in blocks.
+     * @param onProgress Called with the number of completed chunks, from any thread.
+     * @param onComplete Called on the main thread once the square has been generated.
+     */
+    void start(String world, int radius, LongConsumer onProgress, Runnable onComplete);
+
+    /**
+     * Pause generating a world.
+     * @param world The name of the world.
+     */
+    void pause(String world);
+
+    /**
+     * Continue generating a paused world.
+     * @param world The name of the world.
+     */
+    void resume(String world);
+
+}
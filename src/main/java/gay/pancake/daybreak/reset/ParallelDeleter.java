@@ -0,0 +1,135 @@
+package gay.pancake.daybreak.reset;
+
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Deletes directory trees in the background using a bounded pool of threads.
+ * @author Pancake
+ */
+public class ParallelDeleter {
+
+    /** Infix of directories that are waiting to be deleted */
+    public static final String TRASH_INFIX = ".trash-";
+    /** Number of threads deleting files concurrently */
+    private static final int THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+
+    /**
+     * Atomically rename a directory to a new trash directory next to it.
+     * @param dir The directory to move.
+     * @return The trash directory or null if the directory does not exist.
+     * @throws IOException If the directory could not be moved atomically.
+     */
+    public static Path trash(Path dir) throws IOException {
+        if (!Files.exists(dir))
+            return null;
+
+        var trash = dir.resolveSibling(dir.getFileName() + TRASH_INFIX + System.currentTimeMillis());
+        Files.move(dir, trash, StandardCopyOption.ATOMIC_MOVE);
+        return trash;
+    }
+
+    /**
+     * Find all trash directories left over in a directory, for example from a crash during deletion.
+     * @param parent The directory to search.
+     * @return The trash directories.
+     * @throws IOException If the directory could not be listed.
+     */
+    public static List<Path> findTrash(Path parent) throws IOException {
+        try (var stream = Files.list(parent)) {
+            return stream.filter(path -> path.getFileName().toString().contains(TRASH_INFIX) && Files.isDirectory(path)).toList();
+        }
+    }
+
+    /**
+     * Delete directories on a background daemon thread.
+     * @param dirs The directories to delete.
+     * @param logger The logger to report progress to.
+     */
+    public static void deleteAsync(List<Path> dirs, ComponentLogger logger) {
+        if (dirs.isEmpty())
+            return;
+
+        var thread = new Thread(() -> {
+            for (var dir : dirs) {
+                try {
+                    var start = System.nanoTime();
+                    var files = delete(dir);
+                    logger.info("Deleted " + dir + " (" + files + " files) in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+                } catch (Exception e) {
+                    logger.error("Failed to delete " + dir + "!", e);
+                }
+            }
+        }, "Daybreak Trash Collector");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Delete a directory tree, removing the files on a bounded pool of threads.
+     * @param dir The directory to delete.
+     * @return The number of files deleted.
+     * @throws IOException If the directory tree could not be walked or deleted.
+     * @throws InterruptedException If interrupted while waiting for the pool.
+     */
+    public static int delete(Path dir) throws IOException, InterruptedException {
+        var deleted = new AtomicInteger();
+        var failed = new AtomicInteger();
+        var directories = new ArrayList<Path>();
+
+        // delete all files in parallel, the bounded queue makes the walker run deletions itself when the pool is busy
+        var pool = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(THREADS * 64), r -> {
+            var t = new Thread(r, "Daybreak Trash Worker");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+                    directories.add(d);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    pool.execute(() -> {
+                        try {
+                            Files.deleteIfExists(file);
+                            deleted.incrementAndGet();
+                        } catch (IOException e) {
+                            failed.incrementAndGet();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        }
+
+        if (failed.get() > 0)
+            throw new IOException("Unable to delete " + failed.get() + " files in " + dir);
+
+        // delete the now empty directories, deepest first
+        directories.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+        for (var d : directories)
+            Files.deleteIfExists(d);
+
+        return deleted.get();
+    }
+
+}
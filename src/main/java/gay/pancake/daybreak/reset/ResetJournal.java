@@ -0,0 +1,90 @@
+package gay.pancake.daybreak.reset;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+
+/**
+ * Journal of completed reset phases, allowing an interrupted reset to resume where it stopped.
+ * @author Pancake
+ */
+public class ResetJournal {
+
+    /** File the journal is stored in */
+    private final Path file;
+    /** Phases that have been completed */
+    private final EnumSet<ResetPhase> completed = EnumSet.noneOf(ResetPhase.class);
+
+    /**
+     * Open a journal, reading all phases completed so far and dropping a line torn by a crash.
+     * @param file The file the journal is stored in.
+     * @throws IOException If the journal could not be read.
+     */
+    public ResetJournal(Path file) throws IOException {
+        this.file = file;
+        if (!Files.exists(file))
+            return;
+
+        // only lines ending in a line break have been written completely
+        var bytes = Files.readAllBytes(file);
+        var end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n')
+            end--;
+        if (end < bytes.length) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+
+        // skip blank and unknown lines
+        for (var line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n"))
+            for (var phase : ResetPhase.values())
+                if (phase.name().equals(line.trim()))
+                    this.completed.add(phase);
+    }
+
+    /**
+     * Check if a phase has been completed.
+     * @param phase The phase.
+     * @return True if the phase has been completed, false otherwise.
+     */
+    public boolean isDone(ResetPhase phase) {
+        return this.completed.contains(phase);
+    }
+
+    /**
+     * Check if any phase has been completed.
+     * @return True if the journal is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return this.completed.isEmpty();
+    }
+
+    /**
+     * Record a phase as completed and flush the journal to disk.
+     * @param phase The phase.
+     * @throws IOException If the journal could not be written.
+     */
+    public void complete(ResetPhase phase) throws IOException {
+        try (var channel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((phase.name() + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        this.completed.add(phase);
+    }
+
+    /**
+     * Delete the journal once the reset has finished.
+     * @throws IOException If the journal could not be deleted.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(this.file);
+        this.completed.clear();
+    }
+
+}
@@ -0,0 +1,18 @@
+package gay.pancake.daybreak.reset;
+
+/**
+ * Phases of a reset, in the order they are run.
+ * @author Pancake
+ */
+public enum ResetPhase {
+
+    /** Move the world data of survivors into the staging directory */
+    STAGE_SURVIVORS,
+    /** Remove the old world */
+    DELETE,
+    /** Move the world data of survivors back into the world */
+    RESTORE,
+    /** Remove bans and rotate the survivor lists */
+    FINALIZE
+
+}
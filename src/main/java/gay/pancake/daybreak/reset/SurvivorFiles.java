@@ -0,0 +1,146 @@
+package gay.pancake.daybreak.reset;
+
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Moves the world data of survivors in and out of a staging directory without copying it through the jvm.
+ * @author Pancake
+ */
+public class SurvivorFiles {
+
+    /** Directory holding the world data of survivors during a reset */
+    public static final Path STAGING_DIR = Path.of("reset_staging");
+    /** Files of a player relative to the world folder */
+    private static final String[] FILES = { "stats/%s.json", "playerdata/%s.dat", "advancements/%s.json" };
+
+    /**
+     * Move the world data of a survivor into the staging directory.
+     * @param world The world folder.
+     * @param uuid The uuid of the survivor.
+     * @param logger The logger to report missing files to.
+     * @throws IOException If a file could not be moved.
+     */
+    public static void stage(Path world, String uuid, ComponentLogger logger) throws IOException {
+        for (var file : FILES) {
+            var path = world.resolve(file.formatted(uuid));
+            var staged = STAGING_DIR.resolve(file.formatted(uuid));
+            if (!Files.exists(path)) {
+                if (!Files.exists(staged))
+                    logger.info("Warning! File " + path + " does not exist!");
+                continue;
+            }
+
+            // skip files that were copied before the reset and have not changed since
+            if (isCurrent(path, staged))
+                continue;
+
+            transfer(path, staged);
+        }
+    }
+
+    /**
+     * Copy the world data of a survivor into the staging directory ahead of a reset, skipping unchanged files.
+     * @param world The world folder.
+     * @param uuid The uuid of the survivor.
+     * @return The number of files copied.
+     * @throws IOException If a file could not be copied.
+     */
+    public static int prestage(Path world, String uuid) throws IOException {
+        var copied = 0;
+        for (var file : FILES) {
+            var path = world.resolve(file.formatted(uuid));
+            var staged = STAGING_DIR.resolve(file.formatted(uuid));
+            if (!Files.exists(path) || isCurrent(path, staged))
+                continue;
+
+            // copy with attributes so the modification time can be compared later
+            var temp = staged.resolveSibling(staged.getFileName() + ".tmp");
+            Files.createDirectories(staged.getParent());
+            Files.copy(path, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            Files.move(temp, staged, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            copied++;
+        }
+        return copied;
+    }
+
+    /**
+     * Check if a staged file is identical to its source, judging by size and modification time.
+     * @param path The source file.
+     * @param staged The staged file.
+     * @return True if the staged file is up to date, false otherwise.
+     * @throws IOException If the file attributes could not be read.
+     */
+    private static boolean isCurrent(Path path, Path staged) throws IOException {
+        return Files.exists(staged)
+                && Files.size(path) == Files.size(staged)
+                && Files.getLastModifiedTime(path).equals(Files.getLastModifiedTime(staged));
+    }
+
+    /**
+     * Move the world data of a survivor from the staging directory back into the world.
+     * @param world The world folder.
+     * @param uuid The uuid of the survivor.
+     * @throws IOException If a file could not be moved.
+     */
+    public static void restore(Path world, String uuid) throws IOException {
+        for (var file : FILES) {
+            var path = STAGING_DIR.resolve(file.formatted(uuid));
+            if (Files.exists(path))
+                transfer(path, world.resolve(file.formatted(uuid)));
+        }
+    }
+
+    /**
+     * List all players with world data that are not survivors.
+     * @param world The world folder.
+     * @param survivors The uuids of the survivors.
+     * @return The uuids of all other players.
+     * @throws IOException If the player data could not be listed.
+     */
+    public static List<String> listDeaths(Path world, Set<String> survivors) throws IOException {
+        try (var stream = Files.list(world.resolve("playerdata"))) {
+            return stream
+                .map(path -> path.getFileName().toString())
+                .filter(name -> !name.contains("dat_old") && !survivors.contains(name.split("\\.dat")[0]))
+                .map(name -> name.split("\\.dat")[0])
+                .toList();
+        }
+    }
+
+    /**
+     * Delete the world data of a player.
+     * @param world The world folder.
+     * @param uuid The uuid of the player.
+     * @throws IOException If a file could not be deleted.
+     */
+    public static void discard(Path world, String uuid) throws IOException {
+        for (var file : FILES)
+            Files.deleteIfExists(world.resolve(file.formatted(uuid)));
+        Files.deleteIfExists(world.resolve("playerdata/" + uuid + ".dat_old"));
+    }
+
+    /**
+     * Move a file, falling back to a streamed copy if the file system cannot move it.
+     * @param source The file to move.
+     * @param target The destination of the file.
+     * @throws IOException If the file could not be moved or copied.
+     */
+    private static void transfer(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.delete(source);
+        }
+    }
+
+}
@@ -0,0 +1,54 @@
+package gay.pancake.daybreak.session;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Daybreak state of a player, loaded once per session.
+ * @author Pancake
+ */
+@Getter @Setter
+public class PlayerSession {
+
+    /** The unique id of the player */
+    private final UUID uuid;
+    /** Whether the player is a survivor of this session */
+    private volatile boolean survivor;
+    /** Whether the player survived the last session and has yet to join */
+    private volatile boolean lastSession;
+    /** Crown rank of the player, 0 if none */
+    private int crown;
+    /** Collected heads by player */
+    private Map<UUID, Integer> heads = new HashMap<>();
+    /** Total number of collected heads */
+    private int headTotal;
+    /** Whether the persistent data of the player has been decoded */
+    private boolean loaded;
+
+    /**
+     * Create player session.
+     * @param uuid The unique id of the player.
+     * @param survivor Whether the player is a survivor of this session.
+     * @param lastSession Whether the player survived the last session and has yet to join.
+     */
+    public PlayerSession(UUID uuid, boolean survivor, boolean lastSession) {
+        this.uuid = uuid;
+        this.survivor = survivor;
+        this.lastSession = lastSession;
+    }
+
+    /**
+     * Add a collected head.
+     * @param victim The unique id of the player whose head was collected.
+     * @return The new total number of collected heads.
+     */
+    public int addHead(UUID victim) {
+        this.heads.merge(victim, 1, Integer::sum);
+        return ++this.headTotal;
+    }
+
+}
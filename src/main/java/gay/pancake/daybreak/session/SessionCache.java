@@ -0,0 +1,170 @@
+package gay.pancake.daybreak.session;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static gay.pancake.daybreak.DaybreakPlugin.*;
+
+/**
+ * Cache of the sessions of online players, filled at pre-login and kept for the lifetime of the connection.
+ * @author Pancake
+ */
+public class SessionCache implements Listener {
+
+    /** Milliseconds a session loaded at pre-login is kept for a player that has not joined */
+    private static final long PENDING_TIMEOUT = 60_000;
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Sessions by player */
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    /** Time of the pre-login of players that have not joined yet */
+    private final Map<UUID, Long> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Initialize session cache.
+     * @param plugin Daybreak plugin instance.
+     */
+    public SessionCache(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::expire, 20*60, 20*60);
+    }
+
+    /**
+     * Get the session of a player.
+     * @param uuid The unique id of the player.
+     * @return The session or null if the player is not connected.
+     */
+    public PlayerSession get(UUID uuid) {
+        return this.sessions.get(uuid);
+    }
+
+    /**
+     * Get the session of a player, using a session that is not cached if the player is not connected.
+     * @param player The player.
+     * @return The session.
+     */
+    public PlayerSession get(Player player) {
+        var session = this.sessions.get(player.getUniqueId());
+        return this.load(session == null ? this.create(player.getUniqueId()) : session, player);
+    }
+
+    /**
+     * Decode the persistent data of a player into their session unless it has been decoded before.
+     * @param session The session.
+     * @param player The player.
+     * @return The session.
+     */
+    @SuppressWarnings("unchecked")
+    private PlayerSession load(PlayerSession session, Player player) {
+        if (session.isLoaded())
+            return session;
+
+        // decode persistent data once per session
+        var pdc = player.getPersistentDataContainer();
+        if (pdc.has(CROWN_KEY, PersistentDataType.INTEGER)) {
+            // move crown ranks of older versions into the state store
+            this.plugin.store.setCrownRank(player.getUniqueId(), pdc.get(CROWN_KEY, PersistentDataType.INTEGER));
+            pdc.remove(CROWN_KEY);
+            session.setCrown(this.plugin.store.getCrownRank(player.getUniqueId()));
+        }
+        session.setHeads((Map<UUID, Integer>) pdc.getOrDefault(HEADS_KEY, HEADS_TYPE, new HashMap<UUID, Integer>()));
+        session.setHeadTotal(session.getHeads().values().stream().mapToInt(i -> i).sum());
+        session.setLoaded(true);
+        return session;
+    }
+
+    /**
+     * Recompute the survivor status of every session after the survivor lists have changed.
+     */
+    public void refresh() {
+        for (var session : this.sessions.values()) {
+            session.setSurvivor(this.plugin.isSurvivor(session.getUuid()));
+            session.setLastSession(this.plugin.isLastSessionSurvivor(session.getUuid()));
+        }
+    }
+
+    /**
+     * Load the survivor status of a player that is allowed to join.
+     * @param e Async player pre login event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            return;
+
+        // keep the session of a player that is still connected, such as on a duplicate login
+        if (this.sessions.putIfAbsent(e.getUniqueId(), this.create(e.getUniqueId())) == null)
+            this.pending.put(e.getUniqueId(), System.currentTimeMillis());
+    }
+
+    /**
+     * Discard the session of a player whose login was rejected after pre-login, such as by the whitelist or a full server.
+     * @param e Player login event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent e) {
+        if (e.getResult() != PlayerLoginEvent.Result.ALLOWED && this.pending.remove(e.getPlayer().getUniqueId()) != null)
+            this.sessions.remove(e.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Decode the persistent data of a player before other join handlers run.
+     * @param e Player join event.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent e) {
+        var player = e.getPlayer();
+        this.pending.remove(player.getUniqueId());
+        this.load(this.sessions.computeIfAbsent(player.getUniqueId(), this::create), player);
+    }
+
+    /**
+     * Discard the session of a player that left.
+     * @param e Player quit event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent e) {
+        this.sessions.remove(e.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Discard sessions of players that passed pre-login but never joined, such as after losing their connection while logging in.
+     */
+    private void expire() {
+        var now = System.currentTimeMillis();
+        for (var entry : this.pending.entrySet()) {
+            if (now - entry.getValue() < PENDING_TIMEOUT || Bukkit.getPlayer(entry.getKey()) != null)
+                continue;
+
+            this.pending.remove(entry.getKey());
+            this.sessions.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Create a session from the state store.
+     * @param uuid The unique id of the player.
+     * @return The session.
+     */
+    private PlayerSession create(UUID uuid) {
+        var session = new PlayerSession(uuid, this.plugin.isSurvivor(uuid), this.plugin.isLastSessionSurvivor(uuid));
+        session.setCrown(this.plugin.store.getCrownRank(uuid));
+        return session;
+    }
+
+}
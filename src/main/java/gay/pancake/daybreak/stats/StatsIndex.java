@@ -0,0 +1,393 @@
+package gay.pancake.daybreak.stats;
+
+import com.google.gson.stream.JsonReader;
+import gay.pancake.daybreak.DaybreakConfig;
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Statistic;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerStatisticIncrementEvent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of selected vanilla statistics of every player, kept in primitive columns for leaderboards without file io.
+ * The carried over stats files are parsed once at startup, increments during the day are added from statistic events.
+ * @author Pancake
+ */
+public class StatsIndex implements Listener {
+
+    /** Folder of the vanilla stats files */
+    private static final Path STATS_DIR = Path.of("world", "stats");
+    /** Number of threads parsing stats files concurrently */
+    private static final int THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() / 2));
+    /** Category of statistics without a type */
+    private static final String CUSTOM = "minecraft:custom";
+    /** Vanilla categories of typed statistics and vanilla names of untyped statistics whose bukkit key differs */
+    private static final Map<Statistic, String> VANILLA = new EnumMap<>(Statistic.class);
+
+    static {
+        VANILLA.put(Statistic.MINE_BLOCK, "minecraft:mined");
+        VANILLA.put(Statistic.USE_ITEM, "minecraft:used");
+        VANILLA.put(Statistic.BREAK_ITEM, "minecraft:broken");
+        VANILLA.put(Statistic.CRAFT_ITEM, "minecraft:crafted");
+        VANILLA.put(Statistic.PICKUP, "minecraft:picked_up");
+        VANILLA.put(Statistic.DROP, "minecraft:dropped");
+        VANILLA.put(Statistic.KILL_ENTITY, "minecraft:killed");
+        VANILLA.put(Statistic.ENTITY_KILLED_BY, "minecraft:killed_by");
+        VANILLA.put(Statistic.DROP_COUNT, "minecraft:drop");
+        VANILLA.put(Statistic.PLAY_ONE_MINUTE, "minecraft:play_time");
+        VANILLA.put(Statistic.CAKE_SLICES_EATEN, "minecraft:eat_cake_slice");
+        VANILLA.put(Statistic.CAULDRON_FILLED, "minecraft:fill_cauldron");
+        VANILLA.put(Statistic.CAULDRON_USED, "minecraft:use_cauldron");
+        VANILLA.put(Statistic.ARMOR_CLEANED, "minecraft:clean_armor");
+        VANILLA.put(Statistic.BANNER_CLEANED, "minecraft:clean_banner");
+        VANILLA.put(Statistic.BREWINGSTAND_INTERACTION, "minecraft:interact_with_brewingstand");
+        VANILLA.put(Statistic.BEACON_INTERACTION, "minecraft:interact_with_beacon");
+        VANILLA.put(Statistic.DROPPER_INSPECTED, "minecraft:inspect_dropper");
+        VANILLA.put(Statistic.HOPPER_INSPECTED, "minecraft:inspect_hopper");
+        VANILLA.put(Statistic.DISPENSER_INSPECTED, "minecraft:inspect_dispenser");
+        VANILLA.put(Statistic.NOTEBLOCK_PLAYED, "minecraft:play_noteblock");
+        VANILLA.put(Statistic.NOTEBLOCK_TUNED, "minecraft:tune_noteblock");
+        VANILLA.put(Statistic.FLOWER_POTTED, "minecraft:pot_flower");
+        VANILLA.put(Statistic.TRAPPED_CHEST_TRIGGERED, "minecraft:trigger_trapped_chest");
+        VANILLA.put(Statistic.ENDERCHEST_OPENED, "minecraft:open_enderchest");
+        VANILLA.put(Statistic.ITEM_ENCHANTED, "minecraft:enchant_item");
+        VANILLA.put(Statistic.RECORD_PLAYED, "minecraft:play_record");
+        VANILLA.put(Statistic.FURNACE_INTERACTION, "minecraft:interact_with_furnace");
+        VANILLA.put(Statistic.CRAFTING_TABLE_INTERACTION, "minecraft:interact_with_crafting_table");
+        VANILLA.put(Statistic.CHEST_OPENED, "minecraft:open_chest");
+        VANILLA.put(Statistic.SHULKER_BOX_OPENED, "minecraft:open_shulker_box");
+    }
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Names of the indexed statistics */
+    private final String[] names;
+    /** Category of the indexed statistics */
+    private final String[] categories;
+    /** Statistic of the indexed statistics or null to sum the whole category */
+    private final String[] stats;
+    /** Bukkit statistic of indexed untyped statistics, refreshed from online players */
+    private final Statistic[] untyped;
+    /** Indexed statistics by category and statistic */
+    private final Map<String, int[]> exact = new HashMap<>();
+    /** Indexed statistics summing a whole category by category */
+    private final Map<String, int[]> wildcard = new HashMap<>();
+    /** Categories containing indexed statistics */
+    private final Set<String> indexed = new HashSet<>();
+
+    /** Rows of the players */
+    private final Map<UUID, Integer> rows = new HashMap<>();
+    /** Players by row */
+    private UUID[] players = new UUID[64];
+    /** Values read from the stats files by statistic and row */
+    private final long[][] base;
+    /** Values added since the stats files were read by statistic and row */
+    private final long[][] delta;
+    /** Whether the stats files have been read */
+    private boolean ready;
+
+    /**
+     * Initialize stats index and read the stats files in the background.
+     * @param plugin Daybreak plugin instance.
+     */
+    public StatsIndex(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+
+        // parse configured statistics of the form name=category/statistic, where the statistic may be * to sum the whole category
+        var entries = Arrays.stream(DaybreakConfig.STATS.split(",")).map(String::trim).filter(s -> s.contains("=") && s.contains("/")).toList();
+        this.names = new String[entries.size()];
+        this.categories = new String[entries.size()];
+        this.stats = new String[entries.size()];
+        this.untyped = new Statistic[entries.size()];
+        for (var i = 0; i < entries.size(); i++) {
+            var entry = entries.get(i);
+            var key = entry.substring(entry.indexOf('=') + 1);
+            this.names[i] = entry.substring(0, entry.indexOf('='));
+            this.categories[i] = key.substring(0, key.indexOf('/'));
+            this.stats[i] = "*".equals(key.substring(key.indexOf('/') + 1)) ? null : key.substring(key.indexOf('/') + 1);
+            this.indexed.add(this.categories[i]);
+            for (var statistic : Statistic.values())
+                if (statistic.getType() == Statistic.Type.UNTYPED && CUSTOM.equals(this.categories[i]) && vanilla(statistic).equals(this.stats[i]))
+                    this.untyped[i] = statistic;
+            if (this.stats[i] == null)
+                this.wildcard.merge(this.categories[i], new int[] { i }, StatsIndex::concat);
+            else
+                this.exact.merge(this.categories[i] + "/" + this.stats[i], new int[] { i }, StatsIndex::concat);
+        }
+        this.base = new long[this.names.length][this.players.length];
+        this.delta = new long[this.names.length][this.players.length];
+
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, this::load);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::refresh, 20*60, 20*60);
+    }
+
+    /**
+     * Get the names of the indexed statistics.
+     * @return The names.
+     */
+    public List<String> getNames() {
+        return List.of(this.names);
+    }
+
+    /**
+     * Get the players with the highest values of a statistic.
+     * @param name The name of the statistic.
+     * @param limit The maximum number of players.
+     * @return The players and their values, highest first, or null if the statistic is not indexed.
+     */
+    public List<Map.Entry<UUID, Long>> top(String name, int limit) {
+        var stat = List.of(this.names).indexOf(name);
+        if (stat < 0)
+            return null;
+
+        // keep the best rows in a small min heap instead of sorting every row
+        var heap = new PriorityQueue<Map.Entry<UUID, Long>>(Map.Entry.comparingByValue());
+        for (var row = 0; row < this.rows.size(); row++) {
+            var value = this.base[stat][row] + this.delta[stat][row];
+            if (heap.size() < limit)
+                heap.add(Map.entry(this.players[row], value));
+            else if (limit > 0 && value > heap.peek().getValue()) {
+                heap.poll();
+                heap.add(Map.entry(this.players[row], value));
+            }
+        }
+
+        var top = new ArrayList<>(heap);
+        top.sort(Map.Entry.<UUID, Long>comparingByValue().reversed());
+        return top;
+    }
+
+    /**
+     * Forget a player whose stats file has been discarded, moving the last row into the freed row to keep the columns dense.
+     * @param uuid The unique id of the player as found in the file name.
+     */
+    public void remove(String uuid) {
+        Integer row;
+        try {
+            row = this.rows.remove(UUID.fromString(uuid));
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (row == null)
+            return;
+
+        // move the last row into the freed row
+        var last = this.rows.size();
+        if (row != last) {
+            this.players[row] = this.players[last];
+            this.rows.put(this.players[row], row);
+            for (var stat = 0; stat < this.names.length; stat++) {
+                this.base[stat][row] = this.base[stat][last];
+                this.delta[stat][row] = this.delta[stat][last];
+            }
+        }
+
+        this.players[last] = null;
+        for (var stat = 0; stat < this.names.length; stat++)
+            this.base[stat][last] = this.delta[stat][last] = 0;
+    }
+
+    /**
+     * Add statistic increments of players.
+     * @param e Player statistic increment event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStatistic(PlayerStatisticIncrementEvent e) {
+        var statistic = e.getStatistic();
+        var category = statistic.getType() == Statistic.Type.UNTYPED ? CUSTOM : vanilla(statistic);
+        if (!this.indexed.contains(category))
+            return;
+
+        var wildcard = this.wildcard.get(category);
+        var exact = this.exact.get(category + "/" + switch (statistic.getType()) {
+            case UNTYPED -> vanilla(statistic);
+            case BLOCK, ITEM -> e.getMaterial().getKey().toString();
+            case ENTITY -> e.getEntityType().getKey().toString();
+        });
+        if (wildcard == null && exact == null)
+            return;
+
+        var row = this.row(e.getPlayer().getUniqueId());
+        var increment = e.getNewValue() - e.getPreviousValue();
+        if (wildcard != null)
+            for (var stat : wildcard)
+                this.delta[stat][row] += increment;
+        if (exact != null)
+            for (var stat : exact)
+                this.delta[stat][row] += increment;
+    }
+
+    /**
+     * Refresh untyped statistics of online players, as frequent statistics such as the play time fire no events.
+     */
+    private void refresh() {
+        if (!this.ready)
+            return;
+
+        for (var stat = 0; stat < this.names.length; stat++) {
+            if (this.untyped[stat] == null)
+                continue;
+
+            for (var player : Bukkit.getOnlinePlayers()) {
+                var row = this.row(player.getUniqueId());
+                this.delta[stat][row] = player.getStatistic(this.untyped[stat]) - this.base[stat][row];
+            }
+        }
+    }
+
+    /**
+     * Read all stats files on a bounded pool of threads and merge them into the index on the main thread.
+     */
+    private void load() {
+        var start = System.nanoTime();
+        var values = new ConcurrentHashMap<UUID, long[]>();
+        var pool = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(THREADS * 64), r -> {
+            var t = new Thread(r, "Daybreak Stats Reader");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try (var files = Files.list(STATS_DIR)) {
+            files.filter(f -> f.getFileName().toString().endsWith(".json")).forEach(file -> pool.execute(() -> {
+                try {
+                    var name = file.getFileName().toString();
+                    values.put(UUID.fromString(name.substring(0, name.length() - 5)), this.parse(file));
+                } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                    this.plugin.getSLF4JLogger().warn("Unable to read stats file " + file, e);
+                }
+            }));
+        } catch (IOException e) {
+            this.plugin.getSLF4JLogger().warn("Unable to list stats files", e);
+        } finally {
+            pool.shutdown();
+        }
+
+        // keep waiting for slow disks, merging a partial index would leave players out until the next restart
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES))
+                this.plugin.getSLF4JLogger().warn("Still reading stats files after " + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + "s, " + values.size() + " read so far");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(this.plugin, () -> {
+            for (var entry : values.entrySet()) {
+                var row = this.row(entry.getKey());
+                for (var stat = 0; stat < this.names.length; stat++)
+                    this.base[stat][row] = entry.getValue()[stat];
+            }
+
+            this.ready = true;
+            this.plugin.getSLF4JLogger().info("Indexed " + values.size() + " stats files in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+        });
+    }
+
+    /**
+     * Stream a stats file, picking out the indexed statistics without building a tree of the file.
+     * @param file The stats file.
+     * @return The values of the indexed statistics.
+     * @throws IOException If the file could not be read.
+     */
+    private long[] parse(Path file) throws IOException {
+        var values = new long[this.names.length];
+        try (var reader = new JsonReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!"stats".equals(reader.nextName())) {
+                    reader.skipValue();
+                    continue;
+                }
+
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    var category = reader.nextName();
+                    var wildcard = this.wildcard.get(category);
+                    if (!this.indexed.contains(category)) {
+                        reader.skipValue();
+                        continue;
+                    }
+
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        var stat = reader.nextName();
+                        var value = reader.nextLong();
+                        if (wildcard != null)
+                            for (var i : wildcard)
+                                values[i] += value;
+
+                        var exact = this.exact.get(category + "/" + stat);
+                        if (exact != null)
+                            for (var i : exact)
+                                values[i] += value;
+                    }
+                    reader.endObject();
+                }
+                reader.endObject();
+            }
+            reader.endObject();
+        }
+
+        return values;
+    }
+
+    /**
+     * Get the row of a player, adding it if the player is not indexed yet.
+     * @param uuid The unique id of the player.
+     * @return The row.
+     */
+    private int row(UUID uuid) {
+        var row = this.rows.get(uuid);
+        if (row != null)
+            return row;
+
+        // grow the columns when full
+        row = this.rows.size();
+        if (row == this.players.length) {
+            this.players = Arrays.copyOf(this.players, row * 2);
+            for (var stat = 0; stat < this.names.length; stat++) {
+                this.base[stat] = Arrays.copyOf(this.base[stat], row * 2);
+                this.delta[stat] = Arrays.copyOf(this.delta[stat], row * 2);
+            }
+        }
+
+        this.players[row] = uuid;
+        this.rows.put(uuid, row);
+        return row;
+    }
+
+    /**
+     * Get the vanilla name of an untyped statistic or the vanilla category of a typed statistic.
+     * @param statistic The bukkit statistic.
+     * @return The vanilla key.
+     */
+    private static String vanilla(Statistic statistic) {
+        var vanilla = VANILLA.get(statistic);
+        return vanilla != null ? vanilla : statistic.getKey().toString();
+    }
+
+    /**
+     * Concatenate two arrays of statistic indices.
+     * @param a The first array.
+     * @param b The second array.
+     * @return The concatenated array.
+     */
+    private static int[] concat(int[] a, int[] b) {
+        var result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+}
@@ -0,0 +1,449 @@
+package gay.pancake.daybreak.store;
+
+import net.kyori.adventure.text.logger.slf4j.ComponentLogger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static gay.pancake.daybreak.DaybreakBootstrap.*;
+
+/**
+ * File-backed store of the daybreak state, kept in memory and written behind by a dedicated thread.
+ * Every write replaces the whole file through an fsync'd temporary file and an atomic rename.
+ * @author Pancake
+ */
+public class StateStore {
+
+    /** File the state is stored in */
+    public static final Path STATE_FILE = Path.of("daybreak.state");
+
+    /** Magic number and version of the file format */
+    private static final int MAGIC = 0x44425354, VERSION = 1;
+    /** Record types */
+    private static final byte SURVIVOR = 1, LAST_SESSION = 2, DEAD = 3, CROWN_HOLDER = 4, CROWN_RANK = 5;
+    /** Milliseconds changes are collected before they are written */
+    private static final long COALESCE_TIME = 200;
+
+    /** File the state is stored in */
+    private final Path file;
+    /** Logger to report write failures to */
+    private final ComponentLogger logger;
+
+    /** Survivors of this session */
+    private final Set<UUID> survivors = new LinkedHashSet<>();
+    /** Survivors of the last session that have yet to join */
+    private final Set<UUID> lastSession = new LinkedHashSet<>();
+    /** Players that died today */
+    private final Set<UUID> dead = new HashSet<>();
+    /** Holders of the crowns by crown type */
+    private final UUID[] crownHolders = new UUID[3];
+    /** Crown ranks by player */
+    private final Map<UUID, Integer> crownRanks = new HashMap<>();
+
+    /** Number of changes made to the state */
+    private long changes;
+    /** Number of changes written to disk */
+    private long written;
+    /** Writer thread or null if not started */
+    private Thread writer;
+    /** Lock held while the file is written, so the state stays accessible during disk io and writes never overtake each other */
+    private final Object writeLock = new Object();
+
+    /**
+     * Open the store, loading the state in one pass or migrating it from the legacy text files.
+     * @param file The file the state is stored in.
+     * @param logger Logger to report write failures to.
+     * @throws IOException If the state could not be read.
+     */
+    public StateStore(Path file, ComponentLogger logger) throws IOException {
+        this.file = file;
+        this.logger = logger;
+        if (Files.exists(file))
+            this.load();
+        else
+            this.migrate();
+    }
+
+    // Survivors
+
+    /**
+     * Check if a player is a survivor of this session.
+     * @param uuid The unique id of the player.
+     * @return True if the player is a survivor, false otherwise.
+     */
+    public synchronized boolean isSurvivor(UUID uuid) {
+        return this.survivors.contains(uuid);
+    }
+
+    /**
+     * Get the survivors of this session.
+     * @return Copy of the survivors in order of survival.
+     */
+    public synchronized List<UUID> getSurvivors() {
+        return List.copyOf(this.survivors);
+    }
+
+    /**
+     * Add a survivor of this session.
+     * @param uuid The unique id of the player.
+     */
+    public synchronized void addSurvivor(UUID uuid) {
+        if (this.survivors.add(uuid))
+            this.changed();
+    }
+
+    /**
+     * Remove a survivor of this session.
+     * @param uuid The unique id of the player.
+     */
+    public synchronized void removeSurvivor(UUID uuid) {
+        if (this.survivors.remove(uuid))
+            this.changed();
+    }
+
+    /**
+     * Check if a player survived the last session and has yet to join.
+     * @param uuid The unique id of the player.
+     * @return True if the player survived the last session, false otherwise.
+     */
+    public synchronized boolean isLastSession(UUID uuid) {
+        return this.lastSession.contains(uuid);
+    }
+
+    /**
+     * Get the survivors of the last session that have yet to join.
+     * @return Copy of the survivors of the last session.
+     */
+    public synchronized List<UUID> getLastSession() {
+        return List.copyOf(this.lastSession);
+    }
+
+    /**
+     * Remove a survivor of the last session once they joined.
+     * @param uuid The unique id of the player.
+     * @return True if the player survived the last session, false otherwise.
+     */
+    public synchronized boolean removeLastSession(UUID uuid) {
+        if (!this.lastSession.remove(uuid))
+            return false;
+
+        this.changed();
+        return true;
+    }
+
+    /**
+     * Start a new day, the survivors of this session become the survivors of the last session.
+     */
+    public synchronized void rotate() {
+        this.startDay(List.copyOf(this.survivors));
+    }
+
+    /**
+     * Start a new day with the given survivors of the last session, forgetting all deaths and the crown ranks of everyone else.
+     * @param survivors The survivors of the last session.
+     */
+    public synchronized void startDay(Collection<UUID> survivors) {
+        this.lastSession.clear();
+        this.lastSession.addAll(survivors);
+        this.survivors.clear();
+        this.dead.clear();
+        this.crownRanks.keySet().retainAll(this.lastSession);
+        this.changed();
+    }
+
+    // Deaths
+
+    /**
+     * Check if a player died today.
+     * @param uuid The unique id of the player.
+     * @return True if the player died today, false otherwise.
+     */
+    public synchronized boolean isDead(UUID uuid) {
+        return this.dead.contains(uuid);
+    }
+
+    /**
+     * Mark a player as dead for the rest of the day.
+     * @param uuid The unique id of the player.
+     */
+    public synchronized void markDead(UUID uuid) {
+        if (this.dead.add(uuid))
+            this.changed();
+    }
+
+    /**
+     * Forget all deaths once the day has ended.
+     */
+    public synchronized void clearDead() {
+        this.dead.clear();
+        this.changed();
+    }
+
+    // Crowns
+
+    /**
+     * Get the holder of a crown.
+     * @param type The ordinal of the crown type.
+     * @return The unique id of the holder or null if not held.
+     */
+    public synchronized UUID getCrownHolder(int type) {
+        return this.crownHolders[type];
+    }
+
+    /**
+     * Set the holder of a crown.
+     * @param type The ordinal of the crown type.
+     * @param holder The unique id of the holder or null if not held.
+     */
+    public synchronized void setCrownHolder(int type, UUID holder) {
+        if (Objects.equals(this.crownHolders[type], holder))
+            return;
+
+        this.crownHolders[type] = holder;
+        this.changed();
+    }
+
+    /**
+     * Get the crown rank of a player.
+     * @param uuid The unique id of the player.
+     * @return The crown rank or 0 if none.
+     */
+    public synchronized int getCrownRank(UUID uuid) {
+        return this.crownRanks.getOrDefault(uuid, 0);
+    }
+
+    /**
+     * Set the crown rank of a player.
+     * @param uuid The unique id of the player.
+     * @param rank The crown rank or 0 if none.
+     */
+    public synchronized void setCrownRank(UUID uuid, int rank) {
+        var previous = rank == 0 ? this.crownRanks.remove(uuid) : this.crownRanks.put(uuid, rank);
+        if (!Objects.equals(previous, rank == 0 ? null : rank))
+            this.changed();
+    }
+
+    // Persistence
+
+    /**
+     * Start the thread writing changes behind.
+     */
+    public synchronized void startWriter() {
+        if (this.writer != null)
+            return;
+
+        this.writer = new Thread(this::writeLoop, "Daybreak State Writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Stop the writer thread and write all remaining changes.
+     * @throws IOException If the state could not be written.
+     */
+    public void close() throws IOException {
+        Thread writer;
+        synchronized (this) {
+            writer = this.writer;
+            this.writer = null;
+            this.notifyAll();
+        }
+
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        this.flush();
+    }
+
+    /**
+     * Write all changes to disk.
+     * @throws IOException If the state could not be written.
+     */
+    public void flush() throws IOException {
+        synchronized (this.writeLock) {
+            byte[] data;
+            long changes;
+            synchronized (this) {
+                if (this.written == this.changes && Files.exists(this.file))
+                    return;
+
+                data = this.serialize();
+                changes = this.changes;
+            }
+
+            this.write(data);
+            synchronized (this) {
+                this.written = changes;
+            }
+        }
+    }
+
+    /**
+     * Record a change and wake the writer thread.
+     */
+    private void changed() {
+        this.changes++;
+        this.notifyAll();
+    }
+
+    /**
+     * Write changes until the writer thread is stopped, coalescing changes made in quick succession.
+     */
+    private void writeLoop() {
+        while (true) {
+            try {
+                synchronized (this) {
+                    while (this.written == this.changes && this.writer == Thread.currentThread())
+                        this.wait();
+                    if (this.writer != Thread.currentThread())
+                        return;
+                }
+
+                Thread.sleep(COALESCE_TIME);
+                this.flush();
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                this.logger.error("Unable to write daybreak state", e);
+            }
+        }
+    }
+
+    /**
+     * Write the serialized state to disk, replacing the previous file atomically.
+     * @param data The serialized state.
+     * @throws IOException If the state could not be written.
+     */
+    private void write(byte[] data) throws IOException {
+        var temp = this.file.resolveSibling(this.file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(data));
+            channel.force(true);
+        }
+        Files.move(temp, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Serialize the state into typed records.
+     * @return The serialized state.
+     * @throws IOException Never, as the state is written into memory.
+     */
+    private byte[] serialize() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(this.survivors.size() + this.lastSession.size() + this.dead.size() + (int) Arrays.stream(this.crownHolders).filter(Objects::nonNull).count() + this.crownRanks.size());
+
+        for (var uuid : this.survivors)
+            writeRecord(out, SURVIVOR, uuid);
+        for (var uuid : this.lastSession)
+            writeRecord(out, LAST_SESSION, uuid);
+        for (var uuid : this.dead)
+            writeRecord(out, DEAD, uuid);
+        for (var type = 0; type < this.crownHolders.length; type++) {
+            if (this.crownHolders[type] == null)
+                continue;
+
+            writeRecord(out, CROWN_HOLDER, this.crownHolders[type]);
+            out.writeByte(type);
+        }
+        for (var entry : this.crownRanks.entrySet()) {
+            writeRecord(out, CROWN_RANK, entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Load all records from the state file.
+     * @throws IOException If the state could not be read.
+     */
+    private void load() throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("Unsupported daybreak state file " + this.file);
+
+            var count = in.readInt();
+            for (var i = 0; i < count; i++) {
+                var type = in.readByte();
+                var uuid = new UUID(in.readLong(), in.readLong());
+                switch (type) {
+                    case SURVIVOR -> this.survivors.add(uuid);
+                    case LAST_SESSION -> this.lastSession.add(uuid);
+                    case DEAD -> this.dead.add(uuid);
+                    case CROWN_HOLDER -> this.crownHolders[in.readByte()] = uuid;
+                    case CROWN_RANK -> this.crownRanks.put(uuid, in.readInt());
+                    default -> throw new IOException("Unknown record type " + type + " in " + this.file);
+                }
+            }
+        }
+
+        this.written = this.changes;
+    }
+
+    /**
+     * Import the state from the legacy text files, deleting them once the state has been written.
+     * @throws IOException If the legacy files could not be read or the state could not be written.
+     */
+    private void migrate() throws IOException {
+        for (var line : readLines(SURVIVORS_FILE))
+            this.survivors.add(UUID.fromString(line));
+        for (var line : readLines(LAST_SESSION_FILE))
+            this.lastSession.add(UUID.fromString(line));
+
+        var crowns = readLines(CROWNS_FILE);
+        for (var type = 0; type < Math.min(crowns.size(), this.crownHolders.length); type++)
+            if (!crowns.get(type).startsWith("null"))
+                this.crownHolders[type] = UUID.fromString(crowns.get(type));
+
+        this.changes++;
+        this.flush();
+        for (var legacy : new Path[] { SURVIVORS_FILE, LAST_SESSION_FILE, CROWNS_FILE })
+            Files.deleteIfExists(legacy);
+    }
+
+    /**
+     * Write the header of a record.
+     * @param out The output stream.
+     * @param type The record type.
+     * @param uuid The unique id the record belongs to.
+     * @throws IOException Never, as the state is written into memory.
+     */
+    private static void writeRecord(DataOutputStream out, byte type, UUID uuid) throws IOException {
+        out.writeByte(type);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Read the non-blank lines of a legacy text file.
+     * @param file The file.
+     * @return The trimmed lines or an empty list if the file does not exist.
+     * @throws IOException If the file could not be read.
+     */
+    private static List<String> readLines(Path file) throws IOException {
+        if (!Files.exists(file))
+            return List.of();
+
+        return Files.readAllLines(file).stream().map(String::trim).filter(l -> !l.isEmpty()).toList();
+    }
+
+}
@@ -1,18 +1,22 @@
 package gay.pancake.daybreak.webhook;
 
-import gay.pancake.daybreak.DaybreakBootstrap;
 import gay.pancake.daybreak.DaybreakPlugin;
 import gay.pancake.daybreak.crowns.Crown;
+import gay.pancake.daybreak.events.DeathCause;
 import gay.pancake.daybreak.webhook.data.Embed;
 import gay.pancake.daybreak.webhook.data.Field;
 import gay.pancake.daybreak.webhook.data.Footer;
 import gay.pancake.daybreak.webhook.data.Image;
+import lombok.SneakyThrows;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
 
 import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -36,8 +40,9 @@ public class WebhookExecutor {
         var embed = Embed.builder();
 
         // grab player head information
-        var headCollection = (Map<UUID, Integer>) p.getPersistentDataContainer().getOrDefault(DaybreakPlugin.HEADS_KEY, DaybreakPlugin.HEADS_TYPE, new HashMap<UUID, Integer>());
-        var total = headCollection.values().stream().mapToInt(i -> i).sum();
+        var session = JavaPlugin.getPlugin(DaybreakPlugin.class).sessions.get(p);
+        var headCollection = session.getHeads();
+        var total = session.getHeadTotal();
         var heads = headCollection.entrySet().stream().map(e -> "- " + e.getValue() + "x " + WebhookUtil.getPlayerName(e.getKey())).collect(Collectors.joining("\n"));
 
         // create base embed
@@ -72,17 +77,39 @@ public class WebhookExecutor {
     }
 
     /**
-     * Send reset message to webhook.
+     * Send reset message to webhook in the background.
      * @param plugin Daybreak plugin instance
      */
     public void sendResetMessage(DaybreakPlugin plugin) {
+        // take the crown holders on the main thread, the events are counted and the webhook is built off it
+        var holders = Arrays.stream(plugin.crownListener.crowns).map(Crown::getHolder).toArray(UUID[]::new);
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> this.sendResetMessage(plugin, holders));
+    }
+
+    /**
+     * Send reset message to webhook.
+     * @param plugin Daybreak plugin instance
+     * @param holders Holders of the crowns by crown type
+     */
+    @SneakyThrows
+    private void sendResetMessage(DaybreakPlugin plugin, UUID[] holders) {
         var embed = Embed.builder();
 
         // get top 3 players
-        var crowns = plugin.crownListener.crowns;
-        var first = crowns[0].getHolder() != null ? getPlayerName(crowns[0].getHolder()) : "Unclaimed";
-        var second = crowns[1].getHolder() != null ? getPlayerName(crowns[1].getHolder()) : "Unclaimed";
-        var third = crowns[2].getHolder() != null ? getPlayerName(crowns[2].getHolder()) : "Unclaimed";
+        var first = holders[0] != null ? getPlayerName(holders[0]) : "Unclaimed";
+        var second = holders[1] != null ? getPlayerName(holders[1]) : "Unclaimed";
+        var third = holders[2] != null ? getPlayerName(holders[2]) : "Unclaimed";
+
+        // read the digest of the last day once every event up to the reset has been counted
+        plugin.events.sync();
+        var day = plugin.digest.getLast();
+        var killers = day.kills().entrySet().stream().sorted(Map.Entry.<UUID, Integer>comparingByValue().reversed()).limit(3)
+                .map(e -> getPlayerName(e.getKey()) + " (" + e.getValue() + ")").collect(Collectors.joining("\n"));
+        var causes = day.causes().entrySet().stream().sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()).limit(3)
+                .map(e -> DeathCause.name(e.getKey()).replace('_', ' ') + " (" + e.getValue() + ")").collect(Collectors.joining("\n"));
+        var crownTime = day.crownTime().entrySet().stream().sorted(Map.Entry.<UUID, Long>comparingByValue().reversed()).limit(3)
+                .map(e -> getPlayerName(e.getKey()) + " (" + Duration.ofMillis(e.getValue()).toHours() + "h " + Duration.ofMillis(e.getValue()).toMinutesPart() + "m)").collect(Collectors.joining("\n"));
+        var longest = day.longestSurvivor() != null ? getPlayerName(day.longestSurvivor()) + " (" + day.longestStreak() + " day" + (day.longestStreak() == 1 ? "" : "s") + ")" : "";
 
         // create embed
         embed.title("Daybreak has reset!")
@@ -97,12 +124,37 @@ public class WebhookExecutor {
                             .build(),
                     Field.builder()
                             .name("Survivors")
-                            .value(plugin.lastSession.stream().map(WebhookUtil::getPlayerName).collect(Collectors.joining(", ")))
+                            .value(orNone(day.survivors().stream().map(WebhookUtil::getPlayerName).collect(Collectors.joining(", "))))
                             .inline(true)
                             .build(),
                     Field.builder()
                             .name("Deaths")
-                            .value(DaybreakBootstrap.LAST_DEATHS.stream().map(WebhookUtil::getPlayerName).collect(Collectors.joining(", ")))
+                            .value(orNone(day.deaths().stream().map(WebhookUtil::getPlayerName).collect(Collectors.joining(", "))))
+                            .inline(true)
+                            .build(),
+                    Field.builder()
+                            .name("Most kills")
+                            .value(orNone(killers))
+                            .inline(true)
+                            .build(),
+                    Field.builder()
+                            .name("Causes of death")
+                            .value(orNone(causes))
+                            .inline(true)
+                            .build(),
+                    Field.builder()
+                            .name("Longest crown holders")
+                            .value(orNone(crownTime))
+                            .inline(true)
+                            .build(),
+                    Field.builder()
+                            .name("Longest survivor")
+                            .value(orNone(longest))
+                            .inline(true)
+                            .build(),
+                    Field.builder()
+                            .name("Most players online")
+                            .value(String.valueOf(day.peak()))
                             .inline(true)
                             .build()
             })
@@ -114,4 +166,13 @@ public class WebhookExecutor {
         WebhookUtil.send(null, embed.build());
     }
 
+    /**
+     * Replace an empty field value, as empty fields are rejected.
+     * @param value The field value.
+     * @return The value or "None" if empty.
+     */
+    private static String orNone(String value) {
+        return value.isEmpty() ? "None" : value;
+    }
+
 }
@@ -0,0 +1,155 @@
+package gay.pancake.daybreak.worlds;
+
+import gay.pancake.daybreak.DaybreakBootstrap;
+import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.generators.VanillaGenerator;
+import gay.pancake.daybreak.generators.VoidGenerator;
+import gay.pancake.daybreak.reset.ParallelDeleter;
+import gay.pancake.daybreak.reset.SurvivorFiles;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import net.kyori.adventure.util.TriState;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Player;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static gay.pancake.daybreak.DaybreakPlugin.PREFIX;
+import static net.kyori.adventure.text.minimessage.MiniMessage.miniMessage;
+
+/**
+ * Resets the world without restarting the server, by swapping the play world in-process.
+ * @author Pancake
+ */
+public class HotReset {
+
+    /** Name of the world holding survivors while the new world is generated */
+    public static final String HOLDING_WORLD = "daybreak_holding";
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+
+    /** Survivors waiting in the holding world */
+    private final List<Player> held = new ArrayList<>();
+    /** Survivors of the last day */
+    private Set<UUID> survivors = Set.of();
+    /** Whether a hot reset is waiting for the new world to be generated */
+    @Getter private boolean pending;
+
+    /**
+     * Initialize hot reset.
+     * @param plugin Daybreak plugin instance.
+     */
+    public HotReset(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Swap the play world for a new one, preserving survivors. Does nothing while the last hot reset is still pending.
+     */
+    @SneakyThrows
+    public void run() {
+        if (this.pending)
+            return;
+
+        var start = System.nanoTime();
+        var logger = this.plugin.getSLF4JLogger();
+        logger.info("Hot resetting server...");
+        this.plugin.setOnline(false);
+        this.survivors = new HashSet<>(this.plugin.getSurvivors());
+        this.pending = true;
+
+        // kick players that did not survive, their data is discarded
+        for (var p : List.copyOf(Bukkit.getOnlinePlayers()))
+            if (!this.survivors.contains(p.getUniqueId()))
+                p.kick(miniMessage().deserialize("<prefix>The server is resetting.", PREFIX));
+        Bukkit.savePlayers();
+
+        // move survivors to holding world
+        var holding = getHoldingWorld();
+        for (var p : Bukkit.getOnlinePlayers()) {
+            p.teleport(holding.getSpawnLocation());
+            p.sendMessage(miniMessage().deserialize("<prefix>The server is resetting. You will be sent to the new world shortly.", PREFIX));
+            this.held.add(p);
+        }
+
+        // discard world data and deaths of players that did not survive
+        var dataFolder = Bukkit.getWorlds().getFirst().getWorldFolder().toPath();
+        var deaths = SurvivorFiles.listDeaths(dataFolder, this.survivors.stream().map(UUID::toString).collect(Collectors.toSet()));
+        for (var uuid : deaths) {
+            SurvivorFiles.discard(dataFolder, uuid);
+            this.plugin.stats.remove(uuid);
+        }
+
+        // unload and discard the old world, the default world cannot be unloaded and is only abandoned
+        var old = this.plugin.getWorld();
+        if (old.equals(Bukkit.getWorlds().getFirst())) {
+            old.setAutoSave(false);
+            old.setKeepSpawnInMemory(false);
+        } else {
+            var folder = old.getWorldFolder().toPath();
+            Bukkit.unloadWorld(old, false);
+            ParallelDeleter.deleteAsync(List.of(ParallelDeleter.trash(folder)), this.plugin.getComponentLogger());
+        }
+
+        // load the new world, taking it from the world pool if one was generated
+        var name = "world_" + LocalDate.now(Clock.systemUTC()).toEpochDay();
+        if (Files.exists(Path.of(name)))
+            name += "_" + System.currentTimeMillis();
+        var pregenerated = this.plugin.worldPool != null && this.plugin.worldPool.claim(Path.of(name));
+        var world = new WorldCreator(name).generator(new VanillaGenerator()).keepSpawnLoaded(TriState.FALSE).createWorld();
+        this.plugin.setWorldName(world.getName());
+
+        // rotate survivor lists
+        this.plugin.rotateSurvivors();
+        DaybreakBootstrap.RESET = true;
+        logger.info("Swapped world in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+
+        // generate the new world
+        if (pregenerated)
+            this.plugin.onWorldGenerated();
+        else
+            this.plugin.generation.start(world.getName());
+    }
+
+    /**
+     * Get the holding world, creating it if it is not loaded yet.
+     * @return The holding world.
+     */
+    public static World getHoldingWorld() {
+        var holding = Bukkit.getWorld(HOLDING_WORLD);
+        if (holding == null)
+            holding = new WorldCreator(HOLDING_WORLD).generator(new VoidGenerator()).keepSpawnLoaded(TriState.FALSE).createWorld();
+        return holding;
+    }
+
+    /**
+     * Send held survivors to the new world once it has been generated.
+     */
+    public void release() {
+        if (!this.pending)
+            return;
+
+        this.pending = false;
+        this.plugin.crownListener.resetCrowns(this.survivors);
+
+        for (var p : this.held) {
+            if (!p.isOnline())
+                continue;
+
+            this.plugin.removeLastSessionSurvivor(p.getUniqueId());
+            this.plugin.survivalListener.spread(p);
+            this.plugin.survivalListener.startSurvivorTimer(p);
+        }
+        this.held.clear();
+    }
+
+}
@@ -0,0 +1,182 @@
+package gay.pancake.daybreak.worlds;
+
+import gay.pancake.daybreak.DaybreakConfig;
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Grid index of recent spawn points and player positions inside the border, used to keep new spawns apart.
+ * The cell size equals the minimum separation, so the nearest occupied point is always found in the surrounding 3x3 cells.
+ * @author Pancake
+ */
+public class SpawnGrid {
+
+    /** Milliseconds a spawn point keeps its area occupied */
+    private static final long SPAWN_LIFETIME = 1000L*60*5;
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Minimum separation of spawns in blocks */
+    private final int separation;
+    /** Radius of the border in blocks */
+    private final int radius;
+    /** Number of cells along one side of the border */
+    private final int cells;
+    /** First point of every cell or -1 if empty */
+    private final int[] head;
+    /** Recent spawn points */
+    private final ArrayDeque<Spawn> spawns = new ArrayDeque<>();
+
+    /** Coordinates of all points */
+    private int[] xs = new int[64], zs = new int[64];
+    /** Next point in the same cell or -1 if last */
+    private int[] next = new int[64];
+    /** Number of points */
+    private int size;
+
+    /**
+     * Initialize spawn grid.
+     * @param plugin Daybreak plugin instance.
+     */
+    public SpawnGrid(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+        this.separation = Math.max(1, DaybreakConfig.SPAWN_SEPARATION);
+        this.radius = DaybreakPlugin.BORDER_RADIUS;
+        this.cells = Math.max(1, (this.radius * 2 + this.separation - 1) / this.separation);
+        this.head = new int[this.cells * this.cells];
+        Arrays.fill(this.head, -1);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::rebuild, 20, 20);
+    }
+
+    /**
+     * Record a spawn point, occupying its area for the next minutes.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     */
+    public void record(int x, int z) {
+        this.spawns.add(new Spawn(x, z, System.currentTimeMillis()));
+        this.insert(x, z);
+    }
+
+    /**
+     * Check if a point keeps the minimum separation to every occupied point.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @return True if no occupied point is closer than the minimum separation, false otherwise.
+     */
+    public boolean isSpread(int x, int z) {
+        return this.clearance(x, z) >= (long) this.separation * this.separation;
+    }
+
+    /**
+     * Get the squared distance to the nearest occupied point, capped at the squared minimum separation.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @return The squared distance.
+     */
+    public long clearance(int x, int z) {
+        var best = (long) this.separation * this.separation;
+        var cx = this.cell(x);
+        var cz = this.cell(z);
+        for (var nz = Math.max(0, cz - 1); nz <= Math.min(this.cells - 1, cz + 1); nz++) {
+            for (var nx = Math.max(0, cx - 1); nx <= Math.min(this.cells - 1, cx + 1); nx++) {
+                for (var i = this.head[nz * this.cells + nx]; i >= 0; i = this.next[i]) {
+                    long dx = this.xs[i] - x, dz = this.zs[i] - z;
+                    best = Math.min(best, dx * dx + dz * dz);
+                }
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Pick the most spread out of several candidate locations, stopping early once one keeps the minimum separation.
+     * @param candidates Supplier of candidate locations, returning null if none is available.
+     * @param attempts Maximum number of candidates to try.
+     * @return The best candidate or null if no candidate was available.
+     */
+    public Location pick(Supplier<Location> candidates, int attempts) {
+        Location best = null;
+        var bestClearance = -1L;
+        for (var i = 0; i < attempts; i++) {
+            var candidate = candidates.get();
+            if (candidate == null)
+                continue;
+
+            var clearance = this.clearance(candidate.getBlockX(), candidate.getBlockZ());
+            if (clearance > bestClearance) {
+                best = candidate;
+                bestClearance = clearance;
+            }
+            if (this.isSpread(candidate.getBlockX(), candidate.getBlockZ()))
+                break;
+        }
+
+        return best;
+    }
+
+    /**
+     * Rebuild the grid from current player positions and recent spawn points.
+     */
+    private void rebuild() {
+        Arrays.fill(this.head, -1);
+        this.size = 0;
+
+        // forget old spawn points
+        var now = System.currentTimeMillis();
+        while (!this.spawns.isEmpty() && now - this.spawns.peek().time() > SPAWN_LIFETIME)
+            this.spawns.poll();
+        for (var spawn : this.spawns)
+            this.insert(spawn.x(), spawn.z());
+
+        var world = this.plugin.getWorld();
+        if (world == null)
+            return;
+
+        for (var player : world.getPlayers())
+            this.insert(player.getLocation().getBlockX(), player.getLocation().getBlockZ());
+    }
+
+    /**
+     * Insert a point into its cell.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     */
+    private void insert(int x, int z) {
+        if (this.size == this.xs.length) {
+            this.xs = Arrays.copyOf(this.xs, this.size * 2);
+            this.zs = Arrays.copyOf(this.zs, this.size * 2);
+            this.next = Arrays.copyOf(this.next, this.size * 2);
+        }
+
+        var cell = this.cell(z) * this.cells + this.cell(x);
+        this.xs[this.size] = x;
+        this.zs[this.size] = z;
+        this.next[this.size] = this.head[cell];
+        this.head[cell] = this.size++;
+    }
+
+    /**
+     * Get the cell of a coordinate, clamped to the border.
+     * @param c The block coordinate.
+     * @return The cell index along the axis.
+     */
+    private int cell(int c) {
+        return Math.clamp((c + this.radius) / this.separation, 0, this.cells - 1);
+    }
+
+    /**
+     * Spawn point recorded at a time
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @param time The time of the spawn in milliseconds.
+     */
+    private record Spawn(int x, int z, long time) {}
+
+}
@@ -0,0 +1,145 @@
+package gay.pancake.daybreak.worlds;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Pool of validated safe spawn locations whose chunks are kept loaded, refilled in the background at a rate following the join rate.
+ * @author Pancake
+ */
+public class SpawnPool {
+
+    /** Minimum number of spawn locations kept ready */
+    private static final int MIN_SIZE = 8;
+    /** Maximum number of spawn locations kept ready */
+    private static final int MAX_SIZE = 128;
+    /** Number of pooled locations compared when taking a spawn */
+    private static final int CANDIDATES = 8;
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Validated spawn locations */
+    private final ArrayDeque<Location> pool = new ArrayDeque<>();
+
+    /** World the spawn locations belong to */
+    private World world;
+    /** Number of chunks currently being loaded for candidates */
+    private int inFlight;
+    /** Exponentially weighted spawns per minute */
+    private double rate;
+    /** Spawns taken since the last rate update */
+    private int taken;
+
+    /**
+     * Initialize spawn pool.
+     * @param plugin Daybreak plugin instance.
+     */
+    public SpawnPool(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::refill, 1, 1);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, () -> {
+            // one update every 5 seconds, scaled to spawns per minute
+            this.rate = this.rate * 0.8 + this.taken * 12 * 0.2;
+            this.taken = 0;
+        }, 20*5, 20*5);
+    }
+
+    /**
+     * Take the most spread out of a few spawn locations from the pool.
+     * @param grid Grid of occupied areas to keep spawns apart.
+     * @return A validated spawn location in a loaded chunk or null if the pool is empty.
+     */
+    public Location take(SpawnGrid grid) {
+        this.taken++;
+        var candidates = new ArrayList<Location>(CANDIDATES);
+        var best = grid.pick(() -> {
+            while (!this.pool.isEmpty()) {
+                var location = this.pool.poll();
+                if (!location.isWorldLoaded() || location.getWorld() != this.plugin.getWorld())
+                    continue;
+
+                // the surface may have changed since the location was validated
+                if (this.plugin.surfaceCache.getSurface(location.getBlockX(), location.getBlockZ()) == SurfaceCache.SAFE
+                        && this.plugin.surfaceCache.getHeight(location.getBlockX(), location.getBlockZ()) == location.getBlockY() - 1) {
+                    candidates.add(location);
+                    return location;
+                }
+
+                location.getChunk().removePluginChunkTicket(this.plugin);
+            }
+
+            return null;
+        }, CANDIDATES);
+
+        // return the other candidates to the pool
+        candidates.remove(best);
+        this.pool.addAll(candidates);
+        if (best != null)
+            best.getChunk().removePluginChunkTicket(this.plugin);
+        return best;
+    }
+
+    /**
+     * Get the number of spawn locations that should be kept ready.
+     * @return The target size of the pool.
+     */
+    public int getTargetSize() {
+        // keep about one minute of spawns ready
+        return Math.clamp((int) Math.ceil(this.rate), MIN_SIZE, MAX_SIZE);
+    }
+
+    /**
+     * Request candidate chunks until the pool reaches its target size.
+     */
+    private void refill() {
+        var world = this.plugin.getWorld();
+        if (world == null)
+            return;
+
+        // discard locations of a previous world
+        if (world != this.world) {
+            for (var location : this.pool)
+                if (location.isWorldLoaded())
+                    location.getChunk().removePluginChunkTicket(this.plugin);
+            this.pool.clear();
+            this.world = world;
+        }
+
+        // refill faster while the pool is far below its target
+        var target = this.getTargetSize();
+        var parallel = Math.max(2, (target - this.pool.size()) / 4);
+        while (this.pool.size() + this.inFlight < target && this.inFlight < parallel) {
+            var candidate = this.plugin.surfaceCache.findSafeSurface(16);
+            if (candidate == null)
+                return;
+
+            this.inFlight++;
+            world.getChunkAtAsync(candidate).whenComplete((chunk, e) -> Bukkit.getScheduler().runTask(this.plugin, () -> {
+                this.inFlight--;
+                if (e != null || chunk == null || world != this.world || !isSafe(candidate))
+                    return;
+
+                chunk.addPluginChunkTicket(this.plugin);
+                this.pool.add(candidate);
+            }));
+        }
+    }
+
+    /**
+     * Check if a player can stand at a location in a loaded chunk.
+     * @param location The location.
+     * @return True if the ground is solid and there is room for a player, false otherwise.
+     */
+    private static boolean isSafe(Location location) {
+        var feet = location.getBlock();
+        var ground = feet.getRelative(0, -1, 0);
+        var head = feet.getRelative(0, 1, 0);
+        return ground.isSolid() && !ground.isLiquid() && feet.isPassable() && !feet.isLiquid() && head.isPassable() && !head.isLiquid();
+    }
+
+}
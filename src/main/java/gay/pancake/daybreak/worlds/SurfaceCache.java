@@ -0,0 +1,434 @@
+package gay.pancake.daybreak.worlds;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.Directional;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cache of the surface height and material of every column inside the border of the play world.
+ * Filled while chunks are generated or loaded and kept up to date from block changes, so spawn queries never touch unloaded chunks.
+ * @author Pancake
+ */
+public class SurfaceCache implements Listener {
+
+    /** Surface classes of a column */
+    public static final byte UNKNOWN = 0, SAFE = 1, WATER = 2, HAZARD = 3;
+    /** Height of a column that has not been cached yet */
+    private static final short NO_HEIGHT = Short.MIN_VALUE;
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Radius of the border in blocks */
+    private final int radius;
+    /** Side length of the border square in blocks */
+    private final int side;
+    /** Height of the highest block of every column */
+    private final short[] heights;
+    /** Surface class of every column */
+    private final byte[] surfaces;
+    /** Columns changed since the last tick */
+    private final BitSet dirty = new BitSet();
+
+    /** World the cache describes or null if not known yet */
+    private World world;
+    /** Index of the next chunk to backfill or -1 if not backfilling */
+    private int backfill = -1;
+
+    /**
+     * Initialize surface cache.
+     * @param plugin Daybreak plugin instance.
+     */
+    public SurfaceCache(DaybreakPlugin plugin) {
+        this.plugin = plugin;
+        this.radius = DaybreakPlugin.BORDER_RADIUS;
+        this.side = this.radius * 2;
+        this.heights = new short[this.side * this.side];
+        this.surfaces = new byte[this.side * this.side];
+        Arrays.fill(this.heights, NO_HEIGHT);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::tick, 1, 1);
+    }
+
+    /**
+     * Get the height of the highest block of a column.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @return The height or Integer.MIN_VALUE if the column is not cached.
+     */
+    public int getHeight(int x, int z) {
+        var index = this.index(x, z);
+        return index < 0 || this.heights[index] == NO_HEIGHT ? Integer.MIN_VALUE : this.heights[index];
+    }
+
+    /**
+     * Get the surface class of a column.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @return The surface class or UNKNOWN if the column is not cached.
+     */
+    public byte getSurface(int x, int z) {
+        var index = this.index(x, z);
+        return index < 0 ? UNKNOWN : this.surfaces[index];
+    }
+
+    /**
+     * Find a random safe location on the surface of the play world.
+     * @param attempts Number of columns to try.
+     * @return The location above the surface block or null if no safe cached column was found.
+     */
+    public Location findSafeSurface(int attempts) {
+        var world = this.plugin.getWorld();
+        if (world == null || !this.track(world))
+            return null;
+
+        var random = ThreadLocalRandom.current();
+        for (var i = 0; i < attempts; i++) {
+            var x = random.nextInt(-this.radius, this.radius);
+            var z = random.nextInt(-this.radius, this.radius);
+            if (this.getSurface(x, z) == SAFE)
+                return new Location(world, x + 0.5, this.getHeight(x, z) + 1, z + 0.5);
+        }
+
+        return null;
+    }
+
+    /**
+     * Start loading every chunk inside the border that is not cached yet, a few chunks per tick.
+     */
+    public void backfill() {
+        this.backfill = 0;
+    }
+
+    /**
+     * Cache a chunk once it has been loaded, unless it has been cached before.
+     * @param e Chunk load event.
+     */
+    @EventHandler
+    public void onChunkLoad(ChunkLoadEvent e) {
+        if (this.track(e.getWorld()) && this.getSurface(e.getChunk().getX() << 4, e.getChunk().getZ() << 4) == UNKNOWN)
+            this.cache(e.getChunk());
+    }
+
+    /**
+     * Handle block place event.
+     * @param e Block place event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle block break event.
+     * @param e Block break event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle block burn event.
+     * @param e Block burn event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle liquid flow event.
+     * @param e Block from to event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent e) {
+        this.invalidate(e.getToBlock());
+    }
+
+    /**
+     * Handle block fade event.
+     * @param e Block fade event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle block form event.
+     * @param e Block form event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle block explode event.
+     * @param e Block explode event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent e) {
+        this.invalidate(e.blockList());
+    }
+
+    /**
+     * Handle entity explode event.
+     * @param e Entity explode event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent e) {
+        this.invalidate(e.blockList());
+    }
+
+    /**
+     * Handle bucket empty event.
+     * @param e Player bucket empty event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmpty(PlayerBucketEmptyEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle bucket fill event.
+     * @param e Player bucket fill event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFill(PlayerBucketFillEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle dispense event, as dispensers empty buckets in front of them.
+     * @param e Block dispense event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockDispense(BlockDispenseEvent e) {
+        if (e.getBlock().getBlockData() instanceof Directional directional)
+            this.invalidate(e.getBlock().getRelative(directional.getFacing()));
+    }
+
+    /**
+     * Handle entity change block event, such as falling blocks landing.
+     * @param e Entity change block event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityChangeBlock(EntityChangeBlockEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Handle piston extend event.
+     * @param e Block piston extend event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonExtend(BlockPistonExtendEvent e) {
+        this.invalidate(e, e.getBlocks());
+    }
+
+    /**
+     * Handle piston retract event.
+     * @param e Block piston retract event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPistonRetract(BlockPistonRetractEvent e) {
+        this.invalidate(e, e.getBlocks());
+    }
+
+    /**
+     * Handle structure grow event.
+     * @param e Structure grow event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent e) {
+        for (var state : e.getBlocks())
+            this.invalidate(state.getWorld(), state.getX(), state.getZ());
+    }
+
+    /**
+     * Handle leaves decay event.
+     * @param e Leaves decay event.
+     */
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent e) {
+        this.invalidate(e.getBlock());
+    }
+
+    /**
+     * Recompute changed columns and backfill missing chunks.
+     */
+    private void tick() {
+        var world = this.plugin.getWorld();
+        if (world == null || !this.track(world))
+            return;
+
+        // recompute columns changed during the last tick, the blocks have been updated by now
+        for (var index = this.dirty.nextSetBit(0); index >= 0; index = this.dirty.nextSetBit(index + 1)) {
+            var x = index % this.side - this.radius;
+            var z = index / this.side - this.radius;
+            if (world.isChunkLoaded(x >> 4, z >> 4))
+                this.cache(world, x, z);
+        }
+        this.dirty.clear();
+
+        // load a few uncached chunks per tick
+        var min = -this.radius >> 4;
+        var chunks = ((this.radius - 1) >> 4) - min + 1;
+        for (var budget = 4; this.backfill >= 0 && budget > 0; this.backfill++) {
+            if (this.backfill >= chunks * chunks) {
+                this.backfill = -1;
+                break;
+            }
+
+            var cx = this.backfill % chunks + min;
+            var cz = this.backfill / chunks + min;
+            if (this.getSurface(cx << 4, cz << 4) == UNKNOWN && world.isChunkGenerated(cx, cz)) {
+                world.getChunkAtAsync(cx, cz, false);
+                budget--;
+            }
+        }
+    }
+
+    /**
+     * Check whether a world is the play world, resetting the cache once the play world has changed.
+     * @param world The world.
+     * @return True if the world is the play world, false otherwise.
+     */
+    private boolean track(World world) {
+        if (world == this.world)
+            return true;
+
+        if (!world.getName().equals(this.plugin.getWorldName()))
+            return false;
+
+        this.world = world;
+        Arrays.fill(this.heights, NO_HEIGHT);
+        Arrays.fill(this.surfaces, UNKNOWN);
+        this.dirty.clear();
+        return true;
+    }
+
+    /**
+     * Cache every column of a loaded chunk inside the border.
+     * @param chunk The chunk.
+     */
+    private void cache(Chunk chunk) {
+        var x = chunk.getX() << 4;
+        var z = chunk.getZ() << 4;
+        for (var dz = 0; dz < 16; dz++)
+            for (var dx = 0; dx < 16; dx++)
+                this.cache(chunk.getWorld(), x + dx, z + dz);
+    }
+
+    /**
+     * Cache a column of a loaded chunk.
+     * @param world The world.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     */
+    private void cache(World world, int x, int z) {
+        var index = this.index(x, z);
+        if (index < 0)
+            return;
+
+        var y = world.getHighestBlockYAt(x, z);
+        this.heights[index] = (short) y;
+        this.surfaces[index] = classify(world.getBlockAt(x, y, z).getType());
+    }
+
+    /**
+     * Mark the column of a changed block for recomputation.
+     * @param block The block.
+     */
+    private void invalidate(Block block) {
+        this.invalidate(block.getWorld(), block.getX(), block.getZ());
+    }
+
+    /**
+     * Mark a column for recomputation.
+     * @param world The world of the column.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     */
+    private void invalidate(World world, int x, int z) {
+        if (world != this.world)
+            return;
+
+        var index = this.index(x, z);
+        if (index >= 0)
+            this.dirty.set(index);
+    }
+
+    /**
+     * Mark the columns of changed blocks for recomputation.
+     * @param blocks The blocks.
+     */
+    private void invalidate(List<Block> blocks) {
+        for (var block : blocks)
+            this.invalidate(block);
+    }
+
+    /**
+     * Mark the columns around a piston and of the blocks it moves for recomputation.
+     * @param e The piston event.
+     * @param blocks The moved blocks.
+     */
+    private void invalidate(BlockPistonEvent e, List<Block> blocks) {
+        var direction = e.getDirection();
+        this.invalidate(e.getBlock().getRelative(direction));
+        this.invalidate(e.getBlock().getRelative(direction.getOppositeFace()));
+        for (var block : blocks) {
+            this.invalidate(block);
+            this.invalidate(block.getRelative(direction));
+        }
+    }
+
+    /**
+     * Get the index of a column.
+     * @param x The block x coordinate.
+     * @param z The block z coordinate.
+     * @return The index or -1 if the column is outside the border.
+     */
+    private int index(int x, int z) {
+        x += this.radius;
+        z += this.radius;
+        if (x < 0 || z < 0 || x >= this.side || z >= this.side)
+            return -1;
+
+        return z * this.side + x;
+    }
+
+    /**
+     * Classify the surface block of a column.
+     * @param material The material of the highest block.
+     * @return The surface class.
+     */
+    private static byte classify(Material material) {
+        return switch (material) {
+            case WATER, BUBBLE_COLUMN, KELP, KELP_PLANT, SEAGRASS, TALL_SEAGRASS -> WATER;
+            case LAVA, FIRE, SOUL_FIRE, MAGMA_BLOCK, CAMPFIRE, SOUL_CAMPFIRE, CACTUS, POWDER_SNOW, SWEET_BERRY_BUSH, POINTED_DRIPSTONE -> HAZARD;
+            default -> material.isAir() ? HAZARD : SAFE;
+        };
+    }
+
+}
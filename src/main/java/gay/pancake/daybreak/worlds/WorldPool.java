@@ -0,0 +1,130 @@
+package gay.pancake.daybreak.worlds;
+
+import gay.pancake.daybreak.DaybreakPlugin;
+import gay.pancake.daybreak.generators.VanillaGenerator;
+import gay.pancake.daybreak.pregen.Pregenerator;
+import lombok.Getter;
+import lombok.SneakyThrows;
+import net.kyori.adventure.util.TriState;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+import static gay.pancake.daybreak.DaybreakBootstrap.NEXT_WORLD_DIR;
+import static gay.pancake.daybreak.DaybreakBootstrap.NEXT_WORLD_READY_FILE;
+import static gay.pancake.daybreak.DaybreakConfig.*;
+
+/**
+ * Generates the world of the next day in the background, so it can be swapped in at reset.
+ * @author Pancake
+ */
+public class WorldPool {
+
+    /** Name of the world generated for the next day */
+    public static final String NAME = NEXT_WORLD_DIR.toString();
+
+    /** Daybreak plugin instance */
+    private final DaybreakPlugin plugin;
+    /** Pregenerator generating the next world */
+    private final Pregenerator pregenerator;
+
+    /** The next world or null if not loaded */
+    private World world;
+    /** Whether generation of the next world is paused */
+    private boolean paused;
+    /** Whether generation of the next world is complete and the world is waiting to be unloaded */
+    private boolean complete;
+    /** Whether the next world has been generated */
+    @Getter private boolean ready;
+
+    /**
+     * Initialize world pool.
+     * @param plugin Daybreak plugin instance.
+     * @param pregenerator Pregenerator generating the next world.
+     */
+    public WorldPool(DaybreakPlugin plugin, Pregenerator pregenerator) {
+        this.plugin = plugin;
+        this.pregenerator = pregenerator;
+        this.ready = Files.exists(NEXT_WORLD_READY_FILE);
+        Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, this::tick, 20L*60, 20L*60);
+    }
+
+    /**
+     * Start, pause or continue generation depending on time of day and server load.
+     */
+    private void tick() {
+        if (this.ready)
+            return;
+
+        // retry unloading the generated world if it failed before
+        if (this.complete) {
+            this.onGenerationComplete();
+            return;
+        }
+
+        if (!this.plugin.isOnline())
+            return;
+
+        var hour = LocalDateTime.now(Clock.systemUTC()).getHour();
+        var generate = hour >= WORLD_POOL_START_HOUR && hour < WORLD_POOL_END_HOUR && Bukkit.getAverageTickTime() < WORLD_POOL_MAX_MSPT;
+
+        if (generate && this.world == null) {
+            // create next world, chunks generated before a restart are kept and only loaded again as generation starts over
+            this.plugin.getLogger().info("Generating world for the next day...");
+            this.world = new WorldCreator(NAME).generator(new VanillaGenerator()).keepSpawnLoaded(TriState.FALSE).createWorld();
+            this.pregenerator.start(NAME, DaybreakPlugin.BORDER_RADIUS + (16*16), done -> {}, this::onGenerationComplete);
+            this.paused = false;
+        } else if (generate && this.paused) {
+            this.pregenerator.resume(NAME);
+            this.paused = false;
+        } else if (!generate && this.world != null && !this.paused) {
+            this.pregenerator.pause(NAME);
+            this.paused = true;
+        }
+    }
+
+    /**
+     * Save and unload the next world once it has been generated, the world is only marked ready once it has been unloaded.
+     */
+    @SneakyThrows
+    private void onGenerationComplete() {
+        if (this.world == null)
+            return;
+
+        this.complete = true;
+        if (!Bukkit.unloadWorld(this.world, true)) {
+            this.plugin.getLogger().warning("Failed to unload world for the next day, retrying on the next tick");
+            return;
+        }
+
+        this.world = null;
+        this.complete = false;
+        this.ready = true;
+        Files.createFile(NEXT_WORLD_READY_FILE);
+        this.plugin.getLogger().info("World for the next day has been generated");
+    }
+
+    /**
+     * Take the generated world out of the pool, moving it to a new folder.
+     * @param target The folder to move the world to.
+     * @return True if a generated world was moved, false otherwise.
+     */
+    @SneakyThrows
+    public boolean claim(Path target) {
+        if (!this.ready)
+            return false;
+
+        Files.delete(NEXT_WORLD_READY_FILE);
+        Files.deleteIfExists(NEXT_WORLD_DIR.resolve("uid.dat"));
+        Files.move(NEXT_WORLD_DIR, target, StandardCopyOption.ATOMIC_MOVE);
+        this.ready = false;
+        return true;
+    }
+
+}